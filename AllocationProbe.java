@@ -0,0 +1,137 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the memory cost of a stretch of code on the current thread:
+ * bytes allocated, garbage collections and the time they paused for, and
+ * peak heap use. Call start before the code and stop after it; the
+ * getters then describe the code in between.
+ *
+ * Allocation is counted by the JVM per thread, so work the code hands to
+ * other threads is not included. GC counts and times are JVM-wide and
+ * come from the collectors' MXBeans; collectors whose beans time
+ * concurrent cycles rather than pauses (G1's concurrent bean, ZGC and
+ * Shenandoah's cycle beans) are left out. Peak heap is the sum of each heap
+ * pool's peak, which can exceed the true simultaneous peak slightly.
+ *
+ * @author Sam Stieby
+ */
+public class AllocationProbe {
+
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+	private final List<GarbageCollectorMXBean> collectors = new ArrayList<GarbageCollectorMXBean>();
+	private final List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+
+	private long startBytes;
+	private long startGcCount;
+	private long startGcMillis;
+
+	private long bytesAllocated = -1;
+	private long gcCount;
+	private long gcPauseMillis;
+	private long peakHeapBytes;
+
+	public AllocationProbe() {
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			String name = collector.getName();
+			if (!name.contains("Concurrent") && !name.endsWith("Cycles")) {
+				this.collectors.add(collector);
+			}
+		}
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				this.heapPools.add(pool);
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this JVM can count the bytes a thread allocates. If
+	 * not, getBytesAllocated always returns -1.
+	 */
+	public static boolean isAllocationCountingSupported() {
+		return THREADS != null;
+	}
+
+	public void start() {
+		for (MemoryPoolMXBean pool : this.heapPools) {
+			pool.resetPeakUsage();
+		}
+		this.startGcCount = 0;
+		this.startGcMillis = 0;
+		for (GarbageCollectorMXBean collector : this.collectors) {
+			this.startGcCount += collector.getCollectionCount();
+			this.startGcMillis += collector.getCollectionTime();
+		}
+		// Read last so the probe's own allocations above are not counted.
+		this.startBytes = allocatedBytes();
+	}
+
+	public void stop() {
+		long endBytes = allocatedBytes();
+		this.bytesAllocated = endBytes < 0 ? -1 : endBytes - this.startBytes;
+		long endGcCount = 0;
+		long endGcMillis = 0;
+		for (GarbageCollectorMXBean collector : this.collectors) {
+			endGcCount += collector.getCollectionCount();
+			endGcMillis += collector.getCollectionTime();
+		}
+		this.gcCount = endGcCount - this.startGcCount;
+		this.gcPauseMillis = endGcMillis - this.startGcMillis;
+		this.peakHeapBytes = 0;
+		for (MemoryPoolMXBean pool : this.heapPools) {
+			this.peakHeapBytes += pool.getPeakUsage().getUsed();
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated by this thread between start and stop, or
+	 * -1 if that cannot be measured.
+	 */
+	public long getBytesAllocated() {
+		return this.bytesAllocated;
+	}
+
+	public long getGcCount() {
+		return this.gcCount;
+	}
+
+	public long getGcPauseMillis() {
+		return this.gcPauseMillis;
+	}
+
+	public long getPeakHeapBytes() {
+		return this.peakHeapBytes;
+	}
+
+	public String toString() {
+		String allocated = this.bytesAllocated < 0 ? "allocation not measured"
+				: String.format("%.1f MB allocated", this.bytesAllocated / (1024.0 * 1024.0));
+		return String.format("%s, %d GCs pausing %d ms, peak heap %.1f MB", allocated, this.gcCount,
+				this.gcPauseMillis, this.peakHeapBytes / (1024.0 * 1024.0));
+	}
+
+	private static long allocatedBytes() {
+		return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		if (!threads.isThreadAllocatedMemoryEnabled()) {
+			threads.setThreadAllocatedMemoryEnabled(true);
+		}
+		return threads;
+	}
+}
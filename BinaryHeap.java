@@ -1,27 +1,50 @@
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 
 public class BinaryHeap<T extends Comparable<? super T>> {
 
+	private static final int DEFAULT_CAPACITY = 16;
+	// Some VMs reserve header words in an array, so stay a little below the limit.
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
 	private T[] array;
 	private Class<T> type;
 	public int size;
 	Comparator<T> comp;
 	private boolean reduce;
+	private boolean keepCapacity;
+	private SortMetrics metrics = SortMetrics.NONE;
 
-	@SuppressWarnings("unchecked")
 	public BinaryHeap(Class<T> type) {
+		this(type, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty heap that can hold initialCapacity elements before it
+	 * has to grow its backing array.
+	 *
+	 * @param type            the element class, used to allocate the backing array
+	 * @param initialCapacity number of elements to reserve room for
+	 */
+	@SuppressWarnings("unchecked")
+	public BinaryHeap(Class<T> type, int initialCapacity) {
+		if (initialCapacity < 0 || initialCapacity > MAX_ARRAY_SIZE - 1) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		}
 		this.type = type;
 		this.reduce = true;
 		comp = new Comparator<T>() {
 			@Override
 			public int compare(T t1, T t2) {
+				BinaryHeap.this.metrics.comparison();
 				return t1.compareTo(t2);
 			}
 		};
 
-		this.array = (T[]) Array.newInstance(this.type, 1);
+		// Slot 0 is unused, so the backing array is one longer than the capacity.
+		this.array = (T[]) Array.newInstance(this.type, initialCapacity + 1);
 		this.size = 0;
 	}
 
@@ -32,6 +55,7 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 		this.comp = new Comparator<T>() {
 			@Override
 			public int compare(T t1, T t2) {
+				BinaryHeap.this.metrics.comparison();
 				return -t1.compareTo(t2);
 			}
 		};
@@ -48,10 +72,33 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 		buildHeap();
 	}
 
+	/**
+	 * Sends this heap's comparisons, moves, allocations and recursion depth to
+	 * the given metrics from now on.
+	 *
+	 * @param metrics where to report, or SortMetrics.NONE to stop reporting
+	 */
+	public void setMetrics(SortMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Sets whether removals leave the backing array at its current capacity
+	 * instead of shrinking it once the heap is a quarter full. A heap that is
+	 * filled to the same size and emptied over and over should keep its
+	 * capacity, so it does not grow again on every fill.
+	 *
+	 * @param keepCapacity true to never shrink on removal
+	 */
+	public void setKeepCapacity(boolean keepCapacity) {
+		this.keepCapacity = keepCapacity;
+	}
+
 	public void insert(T element) {
 		expand();
 		this.size++;
 		this.array[this.size] = element;
+		this.metrics.move(1);
 		percUp(this.size);
 	}
 
@@ -62,6 +109,123 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 
 	}
 
+	/**
+	 * Inserts every element of the array. Small batches are sifted up one at
+	 * a time; when that would cost more than re-heapifying everything, the
+	 * batch is appended and the whole heap is rebuilt in O(n) instead.
+	 *
+	 * @param elements the elements to add
+	 */
+	public void insertAll(T[] elements) {
+		int m = elements.length;
+		ensureCapacity(this.size + m);
+		if (shouldRebuild(m)) {
+			System.arraycopy(elements, 0, this.array, this.size + 1, m);
+			this.metrics.move(m);
+			this.size += m;
+			buildHeap();
+		} else {
+			for (T e : elements) {
+				this.size++;
+				this.array[this.size] = e;
+				this.metrics.move(1);
+				percUp(this.size);
+			}
+		}
+	}
+
+	/**
+	 * Inserts every element of the collection, choosing between sift-up and a
+	 * full rebuild the same way as {@link #insertAll(Comparable[])}.
+	 *
+	 * @param elements the elements to add
+	 */
+	public void insertAll(Collection<? extends T> elements) {
+		int m = elements.size();
+		ensureCapacity(this.size + m);
+		boolean rebuild = shouldRebuild(m);
+		for (T e : elements) {
+			this.size++;
+			this.array[this.size] = e;
+			this.metrics.move(1);
+			if (!rebuild) {
+				percUp(this.size);
+			}
+		}
+		if (rebuild) {
+			buildHeap();
+		}
+	}
+
+	// Sifting up m elements costs about m log(n + m) comparisons, rebuilding
+	// about 2(n + m).
+	private boolean shouldRebuild(int m) {
+		long total = (long) this.size + m;
+		int log = 64 - Long.numberOfLeadingZeros(total);
+		return (long) m * log > 2 * total;
+	}
+
+	/**
+	 * Removes the top element and inserts a new one in a single sift, which
+	 * is cheaper than deleteMin followed by insert.
+	 *
+	 * @param element the element to add
+	 * @return the element that was on top, or null if the heap was empty
+	 */
+	public T replaceTop(T element) {
+		if (this.size == 0) {
+			insert(element);
+			return null;
+		}
+		T top = this.array[1];
+		this.array[1] = element;
+		this.metrics.move(1);
+		percDown(1);
+		return top;
+	}
+
+	/**
+	 * Removes up to k elements in heap order and returns them, smallest
+	 * first. The backing array is shrunk at most once.
+	 *
+	 * @param k the most elements to remove
+	 */
+	@SuppressWarnings("unchecked")
+	public T[] deleteMin(int k) {
+		T[] result = (T[]) Array.newInstance(this.array.getClass().getComponentType(), Math.min(k, this.size));
+		this.metrics.allocation(arrayBytes(result.length));
+		drainTo(result, result.length);
+		return result;
+	}
+
+	/**
+	 * Removes up to k elements in heap order into dst, starting at index 0.
+	 * The backing array is shrunk at most once.
+	 *
+	 * @param dst where the removed elements go
+	 * @param k   the most elements to remove
+	 * @return the number of elements removed
+	 */
+	public int drainTo(T[] dst, int k) {
+		int n = Math.min(Math.min(k, this.size), dst.length);
+		for (int i = 0; i < n; i++) {
+			dst[i] = this.array[1];
+			T last = this.array[this.size];
+			this.array[this.size] = null;
+			this.size--;
+			this.metrics.move(1);
+			if (this.size > 0) {
+				this.array[1] = last;
+				this.metrics.move(1);
+				percDown(1);
+			}
+		}
+		if (this.reduce && !this.keepCapacity) {
+			shrinkToSize();
+		}
+		return n;
+	}
+
 	public boolean shouldPerc(int i) {
 		if (this.size < 2 * i) {
 			return false;
@@ -94,6 +258,16 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 
 	}
 
+	/**
+	 * Returns the smallest element without removing it, or null if the heap is
+	 * empty.
+	 */
+	public T peek() {
+		if (this.size == 0)
+			return null;
+		return this.array[1];
+	}
+
 	public T deleteMin() {
 		if (this.size == 0)
 			return null;
@@ -101,11 +275,17 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 			T e = this.array[1];
 			T lastElem = this.array[this.size];
 			this.array[1] = lastElem;
+			this.metrics.move(1);
 			percDown(1);
 			this.array[this.size] = e;
+			this.metrics.move(1);
 			this.size--;
 			if (this.reduce) {
-				shrink();
+				// Drop the reference so the removed element can be collected.
+				this.array[this.size + 1] = null;
+				if (!this.keepCapacity) {
+					shrink();
+				}
 			}
 			percUp(this.size);
 			return e;
@@ -117,17 +297,30 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 		return Arrays.toString(this.array);
 	}
 
+	/**
+	 * Sorts the array into ascending order in place with heapsort.
+	 *
+	 * @param array the array to sort
+	 * @param type  unused; kept so existing callers still compile
+	 */
 	public static <T extends Comparable<? super T>> void sort(T[] array, Class<T> type) {
-		BinaryHeap<T> h = new BinaryHeap<T>(array);
-		int len = h.size;
-		for (int i = 0; i < len; i++) {
-			h.deleteMin();
-		}
-		array = h.array;
+		HeapSort.sort(array);
+	}
 
+	/**
+	 * Sorts the array like {@link #sort(Comparable[], Class)}, reporting the
+	 * work done to metrics.
+	 */
+	public static <T extends Comparable<? super T>> void sort(T[] array, Class<T> type, SortMetrics metrics) {
+		HeapSort.sort(array, 0, array.length, null, metrics);
 	}
 
 	public void percDown(int i) {
+		percDown(i, 1);
+	}
+
+	private void percDown(int i, int depth) {
+		this.metrics.recursion(depth);
 		T e = this.array[i];
 
 		if (this.size < 2 * i) {
@@ -140,7 +333,8 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 			if (shouldPerc(i)) {
 				this.array[i] = left;
 				this.array[i * 2] = e;
-				percDown(i * 2);
+				this.metrics.move(2);
+				percDown(i * 2, depth + 1);
 			}
 			return;
 
@@ -152,20 +346,27 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 			if (shouldPerc(i)) {
 				this.array[i] = left;
 				this.array[i * 2] = e;
-				percDown(i * 2);
+				this.metrics.move(2);
+				percDown(i * 2, depth + 1);
 				return;
 			}
 		} else {
 			if (shouldPerc(i)) {
 				this.array[i] = right;
 				this.array[i * 2 + 1] = e;
-				percDown(i * 2 + 1);
+				this.metrics.move(2);
+				percDown(i * 2 + 1, depth + 1);
 			}
 			return;
 		}
 	}
 
 	public void percUp(int i) {
+		percUp(i, 1);
+	}
+
+	private void percUp(int i, int depth) {
+		this.metrics.recursion(depth);
 		if (i <= 1)
 			return;
 		T e = this.array[i];
@@ -176,26 +377,97 @@ public class BinaryHeap<T extends Comparable<? super T>> {
 		} else {
 			this.array[pInd] = e;
 			this.array[i] = p;
-			percUp(pInd);
+			this.metrics.move(2);
+			percUp(pInd, depth + 1);
 		}
 
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Returns the number of elements the heap can hold without growing.
+	 */
+	public int capacity() {
+		return this.array.length - 1;
+	}
+
+	/**
+	 * Grows the backing array, if necessary, so that it can hold at least
+	 * minCapacity elements without another reallocation.
+	 *
+	 * @param minCapacity the desired minimum capacity
+	 */
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > capacity()) {
+			resize(newCapacity(minCapacity));
+		}
+	}
+
+	/**
+	 * Shrinks the backing array so that its capacity equals the current size.
+	 */
+	public void trimToSize() {
+		if (this.size < capacity()) {
+			resize(this.size);
+		}
+	}
+
+	/**
+	 * Makes room for one more element. The capacity doubles when the heap is
+	 * full, so a run of n inserts copies O(n) elements in total.
+	 */
 	public void expand() {
-		T[] newArray = (T[]) Array.newInstance(this.type, this.array.length + 1);
-		for (int i = 0; i < this.size + 1; i++) {
-			newArray[i] = this.array[i];
+		if (this.size < capacity()) {
+			return;
 		}
-		this.array = newArray;
+		resize(newCapacity(this.size + 1));
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Halves the capacity once the heap is only a quarter full. Waiting for a
+	 * quarter instead of a half keeps alternating insert/deleteMin calls at the
+	 * boundary from reallocating every time.
+	 */
 	public void shrink() {
-		T[] newArray = (T[]) Array.newInstance(this.type, this.array.length - 1);
-		for (int i = 0; i <= this.size; i++) {
-			newArray[i] = this.array[i];
+		int capacity = capacity();
+		if (capacity > DEFAULT_CAPACITY && this.size <= capacity / 4) {
+			resize(Math.max(capacity / 2, DEFAULT_CAPACITY));
+		}
+	}
+
+	// Shrinks in a single resize to the capacity that calling shrink after
+	// each removal would have reached, for bulk removals.
+	private void shrinkToSize() {
+		int capacity = capacity();
+		int target = capacity;
+		while (target > DEFAULT_CAPACITY && this.size <= target / 4) {
+			target = Math.max(target / 2, DEFAULT_CAPACITY);
+		}
+		if (target < capacity) {
+			resize(target);
 		}
-		this.array = newArray;
+	}
+
+	private int newCapacity(int minCapacity) {
+		if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE - 1) {
+			throw new OutOfMemoryError("Required heap capacity too large: " + minCapacity);
+		}
+		int capacity = capacity();
+		int grown = capacity + Math.max(capacity, DEFAULT_CAPACITY);
+		if (grown < 0 || grown > MAX_ARRAY_SIZE - 1) {
+			grown = MAX_ARRAY_SIZE - 1;
+		}
+		return Math.max(grown, minCapacity);
+	}
+
+	private void resize(int capacity) {
+		this.array = Arrays.copyOf(this.array, capacity + 1);
+		this.metrics.allocation(arrayBytes(capacity + 1));
+		this.metrics.move(Math.min(this.size, capacity));
+	}
+
+	// Estimated size of a reference array: a 16-byte header plus 4-byte
+	// compressed references.
+	private static long arrayBytes(int length) {
+		return 16 + 4L * length;
 	}
 }
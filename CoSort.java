@@ -0,0 +1,132 @@
+/**
+ * Sorts that carry other arrays along with an int[] of keys, for data kept
+ * as parallel columns rather than objects.
+ *
+ * argsort returns the permutation that sorts the keys, and the permute
+ * methods apply it to any column. sort does both: it sorts the keys and
+ * reorders every payload the same way. Both are stable, so rows with equal
+ * keys keep their order, and neither creates an object per element.
+ *
+ * Small inputs are argsorted by packing each key and its index into a long,
+ * key in the high half, and sorting those with Quicksort; the index breaks
+ * ties, which makes the unstable sort stable. Larger inputs use
+ * RadixSort.lsdPairs on the keys and an array of indices.
+ *
+ * @author Sam Stieby
+ */
+public final class CoSort {
+
+	// Below this size packing into a long[] and quicksorting beats paying
+	// for the radix sort's histograms.
+	private static final int RADIX_THRESHOLD = 1024;
+
+	private CoSort() {
+	}
+
+	/**
+	 * Returns the indices of keys in the order that sorts them: keys[p[0]]
+	 * is the smallest, and equal keys appear in index order. keys is not
+	 * changed.
+	 */
+	public static int[] argsort(int[] keys) {
+		int n = keys.length;
+		int[] order = new int[n];
+		if (n < RADIX_THRESHOLD) {
+			long[] packed = new long[n];
+			for (int i = 0; i < n; i++) {
+				packed[i] = (long) keys[i] << 32 | i;
+			}
+			Quicksort.sort(packed);
+			for (int i = 0; i < n; i++) {
+				order[i] = (int) packed[i];
+			}
+			return order;
+		}
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		RadixSort.lsdPairs(keys.clone(), order);
+		return order;
+	}
+
+	/**
+	 * Sorts keys into ascending order and moves each payload's elements the
+	 * same way, so payload[i] still belongs with keys[i]. The sort is
+	 * stable.
+	 *
+	 * @throws IllegalArgumentException if a payload's length differs from
+	 *                                  keys'
+	 */
+	public static void sort(int[] keys, int[]... payloads) {
+		int n = keys.length;
+		for (int[] payload : payloads) {
+			if (payload.length != n) {
+				throw new IllegalArgumentException("Payload length " + payload.length + " != key length " + n);
+			}
+		}
+		if (n < 2) {
+			return;
+		}
+		if (payloads.length == 0) {
+			RadixSort.lsd(keys);
+			return;
+		}
+		int[] order = argsort(keys);
+		int[] scratch = new int[n];
+		permute(keys, order, scratch);
+		for (int[] payload : payloads) {
+			permute(payload, order, scratch);
+		}
+	}
+
+	/**
+	 * Reorders a so that a[i] becomes the old a[order[i]].
+	 */
+	public static void permute(int[] a, int[] order) {
+		permute(a, order, new int[a.length]);
+	}
+
+	/**
+	 * Reorders a so that a[i] becomes the old a[order[i]], gathering into
+	 * scratch, which must be at least as long as a.
+	 */
+	public static void permute(int[] a, int[] order, int[] scratch) {
+		checkOrder(a.length, order);
+		for (int i = 0; i < a.length; i++) {
+			scratch[i] = a[order[i]];
+		}
+		System.arraycopy(scratch, 0, a, 0, a.length);
+	}
+
+	public static void permute(long[] a, int[] order) {
+		checkOrder(a.length, order);
+		long[] scratch = new long[a.length];
+		for (int i = 0; i < a.length; i++) {
+			scratch[i] = a[order[i]];
+		}
+		System.arraycopy(scratch, 0, a, 0, a.length);
+	}
+
+	public static void permute(double[] a, int[] order) {
+		checkOrder(a.length, order);
+		double[] scratch = new double[a.length];
+		for (int i = 0; i < a.length; i++) {
+			scratch[i] = a[order[i]];
+		}
+		System.arraycopy(scratch, 0, a, 0, a.length);
+	}
+
+	public static <T> void permute(T[] a, int[] order) {
+		checkOrder(a.length, order);
+		T[] scratch = a.clone();
+		for (int i = 0; i < a.length; i++) {
+			a[i] = scratch[order[i]];
+		}
+	}
+
+	private static void checkOrder(int length, int[] order) {
+		if (order.length != length) {
+			throw new IllegalArgumentException("Order length " + order.length + " != array length " + length);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe priority queue built from several DaryHeap sub-heaps, each
+ * behind its own lock (a "multi-queue").
+ *
+ * In relaxed mode an insert goes to a random sub-heap, and deleteMin looks
+ * at two random sub-heaps and pops the smaller top. Threads rarely contend
+ * on the same lock, but deleteMin may return an element that is slightly
+ * larger than the true minimum; on average it is within the few smallest.
+ * Strict mode compares the tops of every sub-heap under their locks, so it
+ * always returns the true minimum at the cost of touching every lock.
+ *
+ * @author Sam Stieby
+ */
+public class ConcurrentHeap<T> {
+
+	private static final int ARITY = 4;
+	// How many random two-choice probes to try before scanning every sub-heap.
+	private static final int RELAXED_ATTEMPTS = 4;
+
+	private final DaryHeap<T>[] heaps;
+	private final ReentrantLock[] locks;
+	// Approximate tops of each sub-heap, read without locking to pick between
+	// the two choices. They are refreshed whenever the sub-heap changes, and
+	// the atomic array publishes the elements safely to those readers.
+	private final AtomicReferenceArray<T> tops;
+	private final Comparator<? super T> comp;
+	private final boolean strict;
+
+	/**
+	 * @param subHeaps number of sub-heaps; about twice the thread count works
+	 *                 well
+	 * @param strict   true to always return the true minimum
+	 * @param comp     the ordering, or null for the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentHeap(int subHeaps, boolean strict, Comparator<? super T> comp) {
+		if (subHeaps < 1) {
+			throw new IllegalArgumentException("Need at least one sub-heap: " + subHeaps);
+		}
+		this.heaps = (DaryHeap<T>[]) new DaryHeap<?>[subHeaps];
+		this.locks = new ReentrantLock[subHeaps];
+		this.tops = new AtomicReferenceArray<T>(subHeaps);
+		for (int i = 0; i < subHeaps; i++) {
+			this.heaps[i] = new DaryHeap<T>(ARITY, comp);
+			this.locks[i] = new ReentrantLock();
+		}
+		this.comp = comp;
+		this.strict = strict;
+	}
+
+	public boolean isStrict() {
+		return this.strict;
+	}
+
+	public void insert(T element) {
+		if (element == null) {
+			throw new NullPointerException();
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (true) {
+			int i = random.nextInt(this.heaps.length);
+			// In relaxed mode, skip to another sub-heap under contention instead
+			// of waiting. Strict deleteMin holds every lock, so waiting is the
+			// only option there.
+			if (this.strict) {
+				this.locks[i].lock();
+			} else if (!this.locks[i].tryLock()) {
+				continue;
+			}
+			try {
+				this.heaps[i].insert(element);
+				this.tops.set(i, this.heaps[i].peek());
+			} finally {
+				this.locks[i].unlock();
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Removes and returns the smallest element (approximately so in relaxed
+	 * mode), or null if the queue was empty when every sub-heap was checked.
+	 */
+	public T deleteMin() {
+		if (this.strict) {
+			return deleteMinStrict();
+		}
+		int n = this.heaps.length;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int attempt = 0; attempt < RELAXED_ATTEMPTS; attempt++) {
+			int i = random.nextInt(n);
+			int j = random.nextInt(n);
+			int best = lessTop(j, i) ? j : i;
+			if (this.tops.get(best) == null || !this.locks[best].tryLock()) {
+				continue;
+			}
+			try {
+				T e = this.heaps[best].deleteMin();
+				if (e != null) {
+					this.tops.set(best, this.heaps[best].peek());
+					return e;
+				}
+			} finally {
+				this.locks[best].unlock();
+			}
+		}
+		// The random probes found nothing; fall back to a full pass so an empty
+		// result really means every sub-heap was empty.
+		for (int k = 0, start = random.nextInt(n); k < n; k++) {
+			int i = (start + k) % n;
+			this.locks[i].lock();
+			try {
+				T e = this.heaps[i].deleteMin();
+				if (e != null) {
+					this.tops.set(i, this.heaps[i].peek());
+					return e;
+				}
+			} finally {
+				this.locks[i].unlock();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of elements. The count is only a snapshot when other
+	 * threads are modifying the queue.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < this.heaps.length; i++) {
+			this.locks[i].lock();
+			try {
+				size += this.heaps[i].size();
+			} finally {
+				this.locks[i].unlock();
+			}
+		}
+		return size;
+	}
+
+	// Takes every lock in index order, which is safe because insert never
+	// holds more than one.
+	private T deleteMinStrict() {
+		int n = this.heaps.length;
+		for (int i = 0; i < n; i++) {
+			this.locks[i].lock();
+		}
+		try {
+			int best = -1;
+			for (int i = 0; i < n; i++) {
+				if (this.heaps[i].peek() != null && (best < 0 || lessTop(i, best))) {
+					best = i;
+				}
+			}
+			if (best < 0) {
+				return null;
+			}
+			T e = this.heaps[best].deleteMin();
+			this.tops.set(best, this.heaps[best].peek());
+			return e;
+		} finally {
+			for (int i = n - 1; i >= 0; i--) {
+				this.locks[i].unlock();
+			}
+		}
+	}
+
+	// True if sub-heap i's top is smaller than sub-heap j's. Empty sub-heaps
+	// count as larger than any element.
+	@SuppressWarnings("unchecked")
+	private boolean lessTop(int i, int j) {
+		T a = this.tops.get(i);
+		T b = this.tops.get(j);
+		if (a == null) {
+			return false;
+		}
+		if (b == null) {
+			return true;
+		}
+		if (this.comp == null) {
+			return ((Comparable<? super T>) a).compareTo(b) < 0;
+		}
+		return this.comp.compare(a, b) < 0;
+	}
+}
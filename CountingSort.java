@@ -0,0 +1,65 @@
+/**
+ * Counting sort for int[] whose values span a small range. It takes
+ * O(n + range) time and a count array the size of the range, so it beats
+ * every comparison sort once the range is no larger than the input.
+ *
+ * @author Sam Stieby
+ */
+public final class CountingSort {
+
+	// The largest count array we are willing to allocate.
+	public static final int MAX_RANGE = 1 << 26;
+
+	private CountingSort() {
+	}
+
+	public static void sort(int[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to), first scanning it for its smallest and largest
+	 * values.
+	 *
+	 * @throws IllegalArgumentException if the values span more than
+	 *                                  MAX_RANGE
+	 */
+	public static void sort(int[] a, int from, int to) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		int min = a[from];
+		int max = a[from];
+		for (int i = from + 1; i < to; i++) {
+			min = Math.min(min, a[i]);
+			max = Math.max(max, a[i]);
+		}
+		sort(a, from, to, min, max);
+	}
+
+	/**
+	 * Sorts a[from, to), whose values the caller knows lie in [min, max].
+	 *
+	 * @throws IllegalArgumentException if max - min + 1 is more than
+	 *                                  MAX_RANGE
+	 */
+	public static void sort(int[] a, int from, int to, int min, int max) {
+		HeapSort.rangeCheck(a.length, from, to);
+		long range = (long) max - min + 1;
+		if (range <= 0 || range > MAX_RANGE) {
+			throw new IllegalArgumentException("Range too large for counting sort: [" + min + ", " + max + "]");
+		}
+		int[] counts = new int[(int) range];
+		for (int i = from; i < to; i++) {
+			counts[a[i] - min]++;
+		}
+		int k = from;
+		for (int v = 0; v < counts.length; v++) {
+			int value = v + min;
+			for (int c = counts[v]; c > 0; c--) {
+				a[k++] = value;
+			}
+		}
+	}
+}
@@ -0,0 +1,93 @@
+import java.util.Comparator;
+
+/**
+ * A SortMetrics that adds up everything reported to it. Not thread-safe.
+ *
+ * @author Sam Stieby
+ */
+public class CountingSortMetrics implements SortMetrics {
+
+	private long comparisons;
+	private long moves;
+	private long allocations;
+	private long bytesAllocated;
+	private int maxDepth;
+	// Set when only a wrapped comparator reports here, so the other counters
+	// mean "not measured" rather than zero.
+	private boolean comparisonsOnly;
+
+	@Override
+	public void comparison() {
+		this.comparisons++;
+	}
+
+	@Override
+	public void move(int count) {
+		this.moves += count;
+	}
+
+	@Override
+	public void allocation(long bytes) {
+		this.allocations++;
+		this.bytesAllocated += bytes;
+	}
+
+	@Override
+	public void recursion(int depth) {
+		if (depth > this.maxDepth) {
+			this.maxDepth = depth;
+		}
+	}
+
+	/**
+	 * Returns a comparator that counts each call, for sorts that only expose
+	 * a Comparator. Only comparisons are measured for such sorts.
+	 */
+	public <T> Comparator<T> counting(Comparator<T> comp) {
+		this.comparisonsOnly = true;
+		return new Comparator<T>() {
+			@Override
+			public int compare(T t1, T t2) {
+				CountingSortMetrics.this.comparisons++;
+				return comp.compare(t1, t2);
+			}
+		};
+	}
+
+	public long getComparisons() {
+		return this.comparisons;
+	}
+
+	public long getMoves() {
+		return this.moves;
+	}
+
+	public long getAllocations() {
+		return this.allocations;
+	}
+
+	public long getBytesAllocated() {
+		return this.bytesAllocated;
+	}
+
+	public int getMaxDepth() {
+		return this.maxDepth;
+	}
+
+	public void reset() {
+		this.comparisons = 0;
+		this.moves = 0;
+		this.allocations = 0;
+		this.bytesAllocated = 0;
+		this.maxDepth = 0;
+	}
+
+	public String toString() {
+		if (this.comparisonsOnly) {
+			return String.format("%.2e comparisons", (double) this.comparisons);
+		}
+		return String.format("%.2e comparisons, %.2e moves, %d allocations (%.1f MB), max depth %d",
+				(double) this.comparisons, (double) this.moves, this.allocations,
+				this.bytesAllocated / (1024.0 * 1024.0), this.maxDepth);
+	}
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A d-ary min-heap whose arity is chosen when it is constructed. A wider node
+ * makes the tree shallower, so deleteMin touches fewer levels at the cost of
+ * comparing more children per level, and insert gets cheaper outright.
+ *
+ * The root is stored at index arity - 1 so that the children of every node
+ * start at a multiple of arity. With 4-byte references and an arity of 16,
+ * each group of siblings is one contiguous 64-byte block. The JVM only
+ * aligns arrays to 8 bytes, so a block usually straddles two cache lines.
+ *
+ * @author Sam Stieby
+ */
+public class DaryHeap<T> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	private final int arity;
+	private final int root;
+	private final Comparator<? super T> comp;
+	private Object[] array;
+	private int size;
+
+	/**
+	 * Creates a heap ordered by the elements' natural ordering.
+	 *
+	 * @param arity number of children per node, at least 2
+	 */
+	public DaryHeap(int arity) {
+		this(arity, DEFAULT_CAPACITY, null);
+	}
+
+	public DaryHeap(int arity, Comparator<? super T> comp) {
+		this(arity, DEFAULT_CAPACITY, comp);
+	}
+
+	/**
+	 * @param arity           number of children per node, at least 2
+	 * @param initialCapacity number of elements to reserve room for
+	 * @param comp            the ordering, or null for the natural ordering
+	 */
+	public DaryHeap(int arity, int initialCapacity, Comparator<? super T> comp) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Arity must be at least 2: " + arity);
+		}
+		if (initialCapacity < 0 || initialCapacity > MAX_ARRAY_SIZE - arity) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		}
+		this.arity = arity;
+		this.root = arity - 1;
+		this.comp = comp;
+		this.array = new Object[this.root + initialCapacity];
+		this.size = 0;
+	}
+
+	public int arity() {
+		return this.arity;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public void insert(T element) {
+		int end = this.root + this.size;
+		if (end == this.array.length) {
+			grow();
+		}
+		this.size++;
+		percUp(end, element);
+	}
+
+	/**
+	 * Returns the smallest element without removing it, or null if the heap is
+	 * empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		return this.size == 0 ? null : (T) this.array[this.root];
+	}
+
+	/**
+	 * Removes and returns the smallest element, or null if the heap is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T deleteMin() {
+		if (this.size == 0) {
+			return null;
+		}
+		T min = (T) this.array[this.root];
+		this.size--;
+		int end = this.root + this.size;
+		T last = (T) this.array[end];
+		this.array[end] = null;
+		if (this.size > 0) {
+			percDown(this.root, last);
+		}
+		return min;
+	}
+
+	public String toString() {
+		return Arrays.toString(Arrays.copyOfRange(this.array, this.root, this.root + this.size));
+	}
+
+	private int parent(int i) {
+		return (i - this.root - 1) / this.arity + this.root;
+	}
+
+	private int firstChild(int i) {
+		return (i - this.root + 1) * this.arity;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(T x, Object y) {
+		if (this.comp == null) {
+			return ((Comparable<? super T>) x).compareTo((T) y);
+		}
+		return this.comp.compare(x, (T) y);
+	}
+
+	// Moves e up from the hole at i instead of swapping at every level.
+	private void percUp(int i, T e) {
+		while (i > this.root) {
+			int p = parent(i);
+			if (compare(e, this.array[p]) >= 0) {
+				break;
+			}
+			this.array[i] = this.array[p];
+			i = p;
+		}
+		this.array[i] = e;
+	}
+
+	// Moves e down from the hole at i, picking the smallest of up to arity
+	// children at each level.
+	@SuppressWarnings("unchecked")
+	private void percDown(int i, T e) {
+		int end = this.root + this.size;
+		int child;
+		while ((child = firstChild(i)) < end) {
+			int last = Math.min(child + this.arity, end);
+			int min = child;
+			T minElem = (T) this.array[child];
+			for (int c = child + 1; c < last; c++) {
+				if (compare((T) this.array[c], minElem) < 0) {
+					min = c;
+					minElem = (T) this.array[c];
+				}
+			}
+			if (compare(minElem, e) >= 0) {
+				break;
+			}
+			this.array[i] = minElem;
+			i = min;
+		}
+		this.array[i] = e;
+	}
+
+	private void grow() {
+		int length = this.array.length;
+		int grown = length + Math.max(length, DEFAULT_CAPACITY);
+		if (grown < 0 || grown > MAX_ARRAY_SIZE) {
+			if (length == MAX_ARRAY_SIZE) {
+				throw new OutOfMemoryError("Heap capacity exhausted");
+			}
+			grown = MAX_ARRAY_SIZE;
+		}
+		this.array = Arrays.copyOf(this.array, grown);
+	}
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps generated workloads on disk so later runs, and other machines given
+ * the same files, sort exactly the same input without paying to generate
+ * it again.
+ *
+ * Each dataset is one file named after its distribution, the version of
+ * the distribution's generator, the size and the seed. A 64-byte header
+ * holds a magic number, the format version, the size, the seed, a CRC-32C
+ * of the data, the generator version and the distribution's key; the ints
+ * follow as raw little-endian values, in the same byte order ExternalSort
+ * uses. Files are read and written through FileChannel.map a window at a
+ * time, so datasets can be larger than 2 GB.
+ *
+ * A file whose header or checksum does not match is generated again and
+ * overwritten. Bumping a Workload's version gives its datasets new names,
+ * so files from the old generator are never read. New files are written
+ * under a temporary name and renamed into place, so an interrupted run
+ * never leaves a half-written dataset.
+ *
+ * @author Sam Stieby
+ */
+public class DatasetCache {
+
+	private static final int MAGIC = 0x53445253; // "SRDS"
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 64;
+	private static final int GENERATOR_VERSION_OFFSET = 32;
+	private static final int KEY_OFFSET = 36;
+	private static final long WINDOW_BYTES = 1 << 28;
+
+	private final Path directory;
+
+	/**
+	 * @param directory where datasets are kept; created if missing
+	 */
+	public DatasetCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the file a dataset is kept in, whether or not it exists yet.
+	 */
+	public Path path(Workload workload, int size, long seed) {
+		return this.directory
+				.resolve(workload.key() + "-v" + workload.version() + "-" + size + "-" + seed + ".bin");
+	}
+
+	/**
+	 * Returns true if the dataset has been written and its header matches.
+	 * The checksum is only checked by load.
+	 */
+	public boolean contains(Workload workload, int size, long seed) throws IOException {
+		Path path = path(workload, size, seed);
+		if (!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readHeader(channel, workload, size, seed) != null;
+		}
+	}
+
+	/**
+	 * Returns the dataset, reading it from disk if a valid copy is there and
+	 * otherwise generating it and writing it out for next time.
+	 */
+	public int[] load(Workload workload, int size, long seed) throws IOException {
+		Path path = path(workload, size, seed);
+		if (Files.isRegularFile(path)) {
+			int[] a = read(path, workload, size, seed);
+			if (a != null) {
+				return a;
+			}
+		}
+		int[] a = workload.generate(size, seed);
+		write(path, workload, seed, a);
+		return a;
+	}
+
+	private int[] read(Path path, Workload workload, int size, long seed) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = readHeader(channel, workload, size, seed);
+			if (header == null) {
+				return null;
+			}
+			int[] a = new int[size];
+			CRC32C crc = new CRC32C();
+			long bytes = (long) size * Integer.BYTES;
+			for (long position = 0; position < bytes; position += WINDOW_BYTES) {
+				int length = (int) Math.min(WINDOW_BYTES, bytes - position);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + position, length);
+				buffer.order(ExternalSort.ORDER);
+				crc.update(buffer.duplicate());
+				buffer.asIntBuffer().get(a, (int) (position / Integer.BYTES), length / Integer.BYTES);
+			}
+			return crc.getValue() == header.getLong(24) ? a : null;
+		}
+	}
+
+	/**
+	 * Reads and checks the header, returning it if it describes this
+	 * dataset and the file is long enough to hold it, otherwise null.
+	 */
+	private static ByteBuffer readHeader(FileChannel channel, Workload workload, int size, long seed)
+			throws IOException {
+		if (channel.size() != HEADER_BYTES + (long) size * Integer.BYTES) {
+			return null;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ExternalSort.ORDER);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				return null;
+			}
+		}
+		header.flip();
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(8) != size
+				|| header.getLong(16) != seed || header.getInt(GENERATOR_VERSION_OFFSET) != workload.version()) {
+			return null;
+		}
+		byte[] key = workload.key().getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < HEADER_BYTES - KEY_OFFSET; i++) {
+			if (header.get(KEY_OFFSET + i) != (i < key.length ? key[i] : 0)) {
+				return null;
+			}
+		}
+		return header;
+	}
+
+	private void write(Path path, Workload workload, long seed, int[] a) throws IOException {
+		byte[] key = workload.key().getBytes(StandardCharsets.UTF_8);
+		if (key.length > HEADER_BYTES - KEY_OFFSET) {
+			throw new IllegalArgumentException("Distribution name too long: " + workload.key());
+		}
+		Files.createDirectories(this.directory);
+		Path temp = Files.createTempFile(this.directory, workload.key(), ".tmp");
+		try {
+			CRC32C crc = new CRC32C();
+			long bytes = (long) a.length * Integer.BYTES;
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				for (long position = 0; position < bytes; position += WINDOW_BYTES) {
+					int length = (int) Math.min(WINDOW_BYTES, bytes - position);
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + position,
+							length);
+					buffer.order(ExternalSort.ORDER);
+					buffer.asIntBuffer().put(a, (int) (position / Integer.BYTES), length / Integer.BYTES);
+					crc.update(buffer);
+				}
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ExternalSort.ORDER);
+				header.putInt(MAGIC).putInt(VERSION).putLong(a.length).putLong(seed).putLong(crc.getValue());
+				header.putInt(workload.version()).put(key);
+				header.clear();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(false);
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Converts elements to and from fixed-size binary records so they can be
+ * written to disk, for example by ExternalHeap.
+ *
+ * @author Sam Stieby
+ */
+public interface ElementCodec<T> {
+
+	ElementCodec<Integer> INTEGER = new ElementCodec<Integer>() {
+		@Override
+		public int recordSize() {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer buffer, Integer element) {
+			buffer.putInt(element);
+		}
+
+		@Override
+		public Integer read(ByteBuffer buffer) {
+			return buffer.getInt();
+		}
+	};
+
+	ElementCodec<Long> LONG = new ElementCodec<Long>() {
+		@Override
+		public int recordSize() {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer buffer, Long element) {
+			buffer.putLong(element);
+		}
+
+		@Override
+		public Long read(ByteBuffer buffer) {
+			return buffer.getLong();
+		}
+	};
+
+	/**
+	 * Returns the number of bytes every record takes.
+	 */
+	int recordSize();
+
+	/**
+	 * Writes exactly recordSize() bytes at the buffer's position.
+	 */
+	void write(ByteBuffer buffer, T element);
+
+	/**
+	 * Reads exactly recordSize() bytes at the buffer's position.
+	 */
+	T read(ByteBuffer buffer);
+}
@@ -0,0 +1,336 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A min-priority queue that can hold more elements than fit in memory.
+ *
+ * New elements go into an in-memory BinaryHeap of fixed capacity. When it
+ * fills up, it is drained in sorted order into a run file on disk. deleteMin
+ * returns the smaller of the buffer's minimum and the smallest head of all
+ * runs, reading each run sequentially through a memory-mapped window.
+ *
+ * Runs are kept in levels, like a log-structured merge tree: once fanIn runs
+ * pile up at one level, their unread parts are merged into a single run one
+ * level up. That keeps the number of open runs logarithmic in the total size
+ * while each element is rewritten only O(log n) times.
+ *
+ * The Java heap holds at most bufferCapacity elements plus one head element
+ * per run, so the total size is limited only by disk space.
+ *
+ * @author Sam Stieby
+ */
+public class ExternalHeap<T extends Comparable<? super T>> implements Closeable {
+
+	private static final int DEFAULT_FAN_IN = 16;
+	// Bytes mapped at a time from each run.
+	private static final int WINDOW_BYTES = 8 << 20;
+
+	private final Class<T> type;
+	private final ElementCodec<T> codec;
+	private final int bufferCapacity;
+	private final int fanIn;
+	private final Path directory;
+	private final int windowBytes;
+
+	private BinaryHeap<T> buffer;
+	private final List<List<Run<T>>> levels;
+	private DaryHeap<Run<T>> runHeads;
+	private long size;
+
+	/**
+	 * @param type           the element class
+	 * @param codec          how elements are written to disk
+	 * @param bufferCapacity number of elements kept in memory before spilling
+	 * @param directory      where run files are created
+	 */
+	public ExternalHeap(Class<T> type, ElementCodec<T> codec, int bufferCapacity, Path directory) {
+		this(type, codec, bufferCapacity, DEFAULT_FAN_IN, directory);
+	}
+
+	/**
+	 * @param fanIn number of runs at one level that triggers a merge
+	 */
+	public ExternalHeap(Class<T> type, ElementCodec<T> codec, int bufferCapacity, int fanIn, Path directory) {
+		if (bufferCapacity < 1) {
+			throw new IllegalArgumentException("Buffer capacity must be positive: " + bufferCapacity);
+		}
+		if (fanIn < 2) {
+			throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+		}
+		this.type = type;
+		this.codec = codec;
+		this.bufferCapacity = bufferCapacity;
+		this.fanIn = fanIn;
+		this.directory = directory;
+		this.windowBytes = WINDOW_BYTES / codec.recordSize() * codec.recordSize();
+		this.buffer = newBuffer();
+		this.levels = new ArrayList<List<Run<T>>>();
+		this.runHeads = newRunHeads();
+		this.size = 0;
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns the number of run files currently on disk.
+	 */
+	public int runCount() {
+		return this.runHeads.size();
+	}
+
+	public void insert(T element) {
+		if (this.buffer.size == this.bufferCapacity) {
+			spill();
+		}
+		this.buffer.insert(element);
+		this.size++;
+	}
+
+	/**
+	 * Removes and returns the smallest element, or null if the queue is empty.
+	 */
+	public T deleteMin() {
+		if (this.size == 0) {
+			return null;
+		}
+		Run<T> run = this.runHeads.peek();
+		T bufferMin = this.buffer.size == 0 ? null : this.buffer.peek();
+		this.size--;
+		if (run == null || (bufferMin != null && bufferMin.compareTo(run.head) <= 0)) {
+			return this.buffer.deleteMin();
+		}
+		this.runHeads.deleteMin();
+		T e = run.head;
+		try {
+			if (run.advance()) {
+				this.runHeads.insert(run);
+			} else {
+				removeRun(run);
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return e;
+	}
+
+	/**
+	 * Deletes every run file and empties the queue, which can then be
+	 * filled again.
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (List<Run<T>> level : this.levels) {
+			for (Run<T> run : level) {
+				try {
+					run.delete();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			level.clear();
+		}
+		this.runHeads = newRunHeads();
+		this.buffer = newBuffer();
+		this.size = 0;
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// Spilling empties the buffer, so it keeps its capacity rather than
+	// shrinking and growing again on every fill.
+	private BinaryHeap<T> newBuffer() {
+		BinaryHeap<T> buffer = new BinaryHeap<T>(this.type, this.bufferCapacity);
+		buffer.setKeepCapacity(true);
+		return buffer;
+	}
+
+	private static <T extends Comparable<? super T>> DaryHeap<Run<T>> newRunHeads() {
+		return new DaryHeap<Run<T>>(4, new Comparator<Run<T>>() {
+			@Override
+			public int compare(Run<T> r1, Run<T> r2) {
+				return r1.head.compareTo(r2.head);
+			}
+		});
+	}
+
+	// Writes the whole buffer out as one sorted level-0 run.
+	private void spill() {
+		try {
+			RunWriter<T> writer = new RunWriter<T>(newRunFile(), this.buffer.size, this.codec, this.windowBytes);
+			while (this.buffer.size > 0) {
+				writer.write(this.buffer.deleteMin());
+			}
+			addRun(writer.finish(0));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void addRun(Run<T> run) throws IOException {
+		while (this.levels.size() <= run.level) {
+			this.levels.add(new ArrayList<Run<T>>());
+		}
+		List<Run<T>> level = this.levels.get(run.level);
+		level.add(run);
+		this.runHeads.insert(run);
+		if (level.size() >= this.fanIn) {
+			mergeLevel(run.level);
+		}
+	}
+
+	private void removeRun(Run<T> run) throws IOException {
+		this.levels.get(run.level).remove(run);
+		run.delete();
+	}
+
+	// Merges the unread parts of every run at one level into a single run on
+	// the next level.
+	private void mergeLevel(int index) throws IOException {
+		List<Run<T>> level = this.levels.get(index);
+		long total = 0;
+		DaryHeap<Run<T>> merge = newRunHeads();
+		for (Run<T> run : level) {
+			total += run.remaining();
+			merge.insert(run);
+		}
+		RunWriter<T> writer = new RunWriter<T>(newRunFile(), total, this.codec, this.windowBytes);
+		Run<T> run;
+		while ((run = merge.deleteMin()) != null) {
+			writer.write(run.head);
+			if (run.advance()) {
+				merge.insert(run);
+			}
+		}
+		for (Run<T> merged : level) {
+			merged.delete();
+		}
+		level.clear();
+
+		// The merged runs were also in runHeads, so rebuild it from the rest.
+		this.runHeads = newRunHeads();
+		for (List<Run<T>> other : this.levels) {
+			for (Run<T> r : other) {
+				this.runHeads.insert(r);
+			}
+		}
+		addRun(writer.finish(index + 1));
+	}
+
+	private Path newRunFile() throws IOException {
+		return Files.createTempFile(this.directory, "heap-run", ".bin");
+	}
+
+	/**
+	 * Sequentially writes a run of known length through mapped windows.
+	 */
+	private static class RunWriter<T extends Comparable<? super T>> {
+		private final Path path;
+		private final FileChannel channel;
+		private final ElementCodec<T> codec;
+		private final long count;
+		private final int windowBytes;
+		private MappedByteBuffer window;
+		private long position;
+
+		RunWriter(Path path, long count, ElementCodec<T> codec, int windowBytes) throws IOException {
+			this.path = path;
+			this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.codec = codec;
+			this.count = count;
+			this.windowBytes = windowBytes;
+			this.position = 0;
+		}
+
+		void write(T element) throws IOException {
+			if (this.window == null || !this.window.hasRemaining()) {
+				long bytes = Math.min(this.windowBytes, this.count * this.codec.recordSize() - this.position);
+				this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, this.position, bytes);
+				this.position += bytes;
+			}
+			this.codec.write(this.window, element);
+		}
+
+		Run<T> finish(int level) throws IOException {
+			this.window = null;
+			Run<T> run = new Run<T>(this.path, this.channel, this.count, level, this.codec, this.windowBytes);
+			run.advance();
+			return run;
+		}
+	}
+
+	/**
+	 * A sorted run on disk and a cursor over it. head is the next unread
+	 * element.
+	 */
+	private static class Run<T extends Comparable<? super T>> {
+		final int level;
+		T head;
+		private final Path path;
+		private final FileChannel channel;
+		private final ElementCodec<T> codec;
+		private final long count;
+		private final int windowBytes;
+		private MappedByteBuffer window;
+		private long position;
+		private long read;
+
+		Run(Path path, FileChannel channel, long count, int level, ElementCodec<T> codec, int windowBytes) {
+			this.path = path;
+			this.channel = channel;
+			this.count = count;
+			this.level = level;
+			this.codec = codec;
+			this.windowBytes = windowBytes;
+			this.position = 0;
+			this.read = 0;
+		}
+
+		long remaining() {
+			// head has been read but not consumed.
+			return this.count - this.read + 1;
+		}
+
+		/**
+		 * Loads the next element into head. Returns false once the run is used
+		 * up.
+		 */
+		boolean advance() throws IOException {
+			if (this.read == this.count) {
+				this.head = null;
+				return false;
+			}
+			if (this.window == null || !this.window.hasRemaining()) {
+				long bytes = Math.min(this.windowBytes, this.count * this.codec.recordSize() - this.position);
+				this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, bytes);
+				this.position += bytes;
+			}
+			this.head = this.codec.read(this.window);
+			this.read++;
+			return true;
+		}
+
+		void delete() throws IOException {
+			this.window = null;
+			this.head = null;
+			this.channel.close();
+			Files.deleteIfExists(this.path);
+		}
+	}
+}
@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorts binary files of ints or longs that are larger than memory.
+ *
+ * The run phase maps the input a chunk at a time, sorts each chunk in memory
+ * with Arrays.parallelSort and writes it out as a sorted run. The merge phase
+ * combines up to fanIn runs at a time with a loser tree, using as many passes
+ * as needed, and writes the last pass straight into the mapped output file.
+ *
+ * Files hold raw little-endian values with no header.
+ *
+ * @author Sam Stieby
+ */
+public class ExternalSort {
+
+	public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private static final int MAX_CHUNK_ELEMENTS = Integer.MAX_VALUE - 8;
+	private static final long MAX_WINDOW_BYTES = 64 << 20;
+	private static final long MIN_WINDOW_BYTES = 64 << 10;
+
+	private final long memoryBytes;
+	private final int fanIn;
+	private final Path tempDirectory;
+
+	/**
+	 * Time and volume of the last sort, per phase.
+	 */
+	public static class Report {
+		public long bytes;
+		public int runs;
+		public int mergePasses;
+		public long runPhaseNanos;
+		public long mergePhaseNanos;
+	}
+
+	/**
+	 * @param memoryBytes   Java heap to use for sorting each chunk
+	 * @param fanIn         most runs merged at once
+	 * @param tempDirectory where intermediate runs are written
+	 */
+	public ExternalSort(long memoryBytes, int fanIn, Path tempDirectory) {
+		if (memoryBytes < 1024) {
+			throw new IllegalArgumentException("Memory budget too small: " + memoryBytes);
+		}
+		if (fanIn < 2) {
+			throw new IllegalArgumentException("Fan-in must be at least 2: " + fanIn);
+		}
+		this.memoryBytes = memoryBytes;
+		this.fanIn = fanIn;
+		this.tempDirectory = tempDirectory;
+	}
+
+	public Report sortInts(Path input, Path output) throws IOException {
+		return sort(input, output, Integer.BYTES);
+	}
+
+	public Report sortLongs(Path input, Path output) throws IOException {
+		return sort(input, output, Long.BYTES);
+	}
+
+	private Report sort(Path input, Path output, int width) throws IOException {
+		Report report = new Report();
+		List<Run> runs = new ArrayList<Run>();
+		// The runs being written by the current merge pass, kept apart so they
+		// are deleted too if the pass fails.
+		List<Run> next = new ArrayList<Run>();
+		try {
+			long startTime = System.nanoTime();
+			try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+				report.bytes = in.size();
+				if (report.bytes % width != 0) {
+					throw new IllegalArgumentException(input + " is not a whole number of " + width + "-byte values");
+				}
+				writeRuns(in, report.bytes / width, width, runs);
+			}
+			report.runs = runs.size();
+			report.runPhaseNanos = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			while (runs.size() > this.fanIn) {
+				for (int i = 0; i < runs.size(); i += this.fanIn) {
+					List<Run> group = runs.subList(i, Math.min(i + this.fanIn, runs.size()));
+					Run merged = new Run(Files.createTempFile(this.tempDirectory, "sort-run", ".bin"), 0, width);
+					next.add(merged);
+					mergeRuns(group, merged.path, width);
+					merged.count = Files.size(merged.path) / width;
+					for (Run run : group) {
+						Files.deleteIfExists(run.path);
+					}
+				}
+				runs = next;
+				next = new ArrayList<Run>();
+				report.mergePasses++;
+			}
+			mergeRuns(runs, output, width);
+			report.mergePasses++;
+			report.mergePhaseNanos = System.nanoTime() - startTime;
+		} finally {
+			for (Run run : runs) {
+				Files.deleteIfExists(run.path);
+			}
+			for (Run run : next) {
+				Files.deleteIfExists(run.path);
+			}
+		}
+		return report;
+	}
+
+	// Sorts the input a chunk at a time and writes each chunk as a run.
+	private void writeRuns(FileChannel in, long count, int width, List<Run> runs) throws IOException {
+		// Arrays.parallelSort needs a scratch array as large as the input.
+		int chunk = (int) Math.max(1, Math.min(this.memoryBytes / (2L * width), MAX_CHUNK_ELEMENTS));
+		int[] ints = null;
+		long[] longs = null;
+		for (long start = 0; start < count; start += chunk) {
+			int n = (int) Math.min(chunk, count - start);
+			Run run = new Run(Files.createTempFile(this.tempDirectory, "sort-run", ".bin"), n, width);
+			runs.add(run);
+			MappedByteBuffer source = in.map(FileChannel.MapMode.READ_ONLY, start * width, (long) n * width);
+			source.order(ORDER);
+			try (FileChannel out = FileChannel.open(run.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, (long) n * width);
+				target.order(ORDER);
+				if (width == Integer.BYTES) {
+					if (ints == null) {
+						ints = new int[n];
+					}
+					source.asIntBuffer().get(ints, 0, n);
+					Arrays.parallelSort(ints, 0, n);
+					target.asIntBuffer().put(ints, 0, n);
+				} else {
+					if (longs == null) {
+						longs = new long[n];
+					}
+					source.asLongBuffer().get(longs, 0, n);
+					Arrays.parallelSort(longs, 0, n);
+					target.asLongBuffer().put(longs, 0, n);
+				}
+			}
+		}
+	}
+
+	// Merges the runs into target with a loser tree.
+	private void mergeRuns(List<Run> runs, Path target, int width) throws IOException {
+		long total = 0;
+		for (Run run : runs) {
+			total += run.count;
+		}
+		long window = Math.max(MIN_WINDOW_BYTES, Math.min(MAX_WINDOW_BYTES, this.memoryBytes / (runs.size() + 1)));
+		window = window / width * width;
+
+		RunReader[] readers = new RunReader[runs.size()];
+		try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int i = 0; i < readers.length; i++) {
+				readers[i] = new RunReader(runs.get(i), window);
+			}
+			LoserTree tree = new LoserTree(readers);
+			long position = 0;
+			long end = total * width;
+			while (position < end) {
+				long bytes = Math.min(window, end - position);
+				MappedByteBuffer buffer = out.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+				buffer.order(ORDER);
+				position += bytes;
+				long n = bytes / width;
+				if (width == Integer.BYTES) {
+					for (long i = 0; i < n; i++) {
+						buffer.putInt((int) tree.next());
+					}
+				} else {
+					for (long i = 0; i < n; i++) {
+						buffer.putLong(tree.next());
+					}
+				}
+			}
+		} finally {
+			for (RunReader reader : readers) {
+				if (reader != null) {
+					reader.close();
+				}
+			}
+		}
+	}
+
+	private static class Run {
+		final Path path;
+		final int width;
+		long count;
+
+		Run(Path path, long count, int width) {
+			this.path = path;
+			this.count = count;
+			this.width = width;
+		}
+	}
+
+	/**
+	 * Streams the values of one run through mapped windows.
+	 */
+	private static class RunReader {
+		private final FileChannel channel;
+		private final long window;
+		private final int width;
+		private final long end;
+		private long position;
+		private MappedByteBuffer buffer;
+		boolean exhausted;
+		long head;
+
+		RunReader(Run run, long window) throws IOException {
+			this.channel = FileChannel.open(run.path, StandardOpenOption.READ);
+			this.window = window;
+			this.width = run.width;
+			this.end = run.count * run.width;
+			this.position = 0;
+			advance();
+		}
+
+		void advance() throws IOException {
+			if (this.buffer == null || !this.buffer.hasRemaining()) {
+				if (this.position == this.end) {
+					this.exhausted = true;
+					return;
+				}
+				long bytes = Math.min(this.window, this.end - this.position);
+				this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, bytes);
+				this.buffer.order(ORDER);
+				this.position += bytes;
+			}
+			this.head = this.width == Integer.BYTES ? this.buffer.getInt() : this.buffer.getLong();
+		}
+
+		void close() throws IOException {
+			this.buffer = null;
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * A tournament tree that stores the loser of each match. Replacing the
+	 * winner only replays the matches on its path to the root: log k
+	 * comparisons, each against a single stored loser, where a binary heap
+	 * needs two per level.
+	 */
+	private static class LoserTree {
+		private final RunReader[] readers;
+		private final int k;
+		// tree[0] is the overall winner; tree[1..k-1] hold match losers.
+		private final int[] tree;
+
+		LoserTree(RunReader[] readers) {
+			this.readers = readers;
+			this.k = readers.length;
+			this.tree = new int[Math.max(this.k, 1)];
+			// Index k stands for a virtual leaf that beats everything, so every
+			// real leaf can be replayed into an initially full tree.
+			Arrays.fill(this.tree, this.k);
+			for (int i = this.k - 1; i >= 0; i--) {
+				replay(i);
+			}
+		}
+
+		long next() throws IOException {
+			int winner = this.tree[0];
+			long value = this.readers[winner].head;
+			this.readers[winner].advance();
+			replay(winner);
+			return value;
+		}
+
+		private void replay(int leaf) {
+			int s = leaf;
+			for (int t = (leaf + this.k) / 2; t > 0; t /= 2) {
+				if (loses(s, this.tree[t])) {
+					int winner = this.tree[t];
+					this.tree[t] = s;
+					s = winner;
+				}
+			}
+			this.tree[0] = s;
+		}
+
+		// True if leaf a loses a match against leaf b.
+		private boolean loses(int a, int b) {
+			if (a == this.k || b == this.k) {
+				return b == this.k;
+			}
+			if (this.readers[a].exhausted) {
+				return true;
+			}
+			if (this.readers[b].exhausted) {
+				return false;
+			}
+			return this.readers[a].head > this.readers[b].head;
+		}
+	}
+}
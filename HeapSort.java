@@ -0,0 +1,246 @@
+import java.util.Comparator;
+
+/**
+ * In-place heapsort for object and primitive arrays. Every method sorts in
+ * O(n log n) time even on the worst input, uses no auxiliary array and does
+ * not recurse, so the extra memory is constant. It is not stable.
+ *
+ * @author Sam Stieby
+ */
+public final class HeapSort {
+
+	private HeapSort() {
+	}
+
+	public static <T extends Comparable<? super T>> void sort(T[] a) {
+		sort(a, 0, a.length, null);
+	}
+
+	public static <T> void sort(T[] a, Comparator<? super T> comp) {
+		sort(a, 0, a.length, comp);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 *
+	 * @param a    the array to sort
+	 * @param from index of the first element, inclusive
+	 * @param to   index of the last element, exclusive
+	 * @param comp the ordering, or null for the natural ordering
+	 */
+	public static <T> void sort(T[] a, int from, int to, Comparator<? super T> comp) {
+		sort(a, from, to, comp, SortMetrics.NONE);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order, reporting comparisons and moves
+	 * to metrics.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(T[] a, int from, int to, Comparator<? super T> comp, SortMetrics metrics) {
+		rangeCheck(a.length, from, to);
+		if (comp == null) {
+			comp = (Comparator<? super T>) Comparator.naturalOrder();
+		}
+		int n = to - from;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, from, i, a[from + i], n, comp, metrics);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			T top = a[from];
+			siftDownToLeaf(a, from, a[from + end], end, comp, metrics);
+			a[from + end] = top;
+			metrics.move(1);
+		}
+	}
+
+	public static void sort(int[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 */
+	public static void sort(int[] a, int from, int to) {
+		sort(a, from, to, SortMetrics.NONE);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order, reporting comparisons and moves
+	 * to metrics.
+	 */
+	public static void sort(int[] a, int from, int to, SortMetrics metrics) {
+		rangeCheck(a.length, from, to);
+		int n = to - from;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, from, i, a[from + i], n, metrics);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			int top = a[from];
+			siftDown(a, from, 0, a[from + end], end, metrics);
+			a[from + end] = top;
+			metrics.move(1);
+		}
+	}
+
+	public static void sort(long[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 */
+	public static void sort(long[] a, int from, int to) {
+		rangeCheck(a.length, from, to);
+		int n = to - from;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, from, i, a[from + i], n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			long top = a[from];
+			siftDown(a, from, 0, a[from + end], end);
+			a[from + end] = top;
+		}
+	}
+
+	public static void sort(double[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into the ascending order of Double.compare.
+	 */
+	public static void sort(double[] a, int from, int to) {
+		rangeCheck(a.length, from, to);
+		int n = to - from;
+		for (int i = n / 2 - 1; i >= 0; i--) {
+			siftDown(a, from, i, a[from + i], n);
+		}
+		for (int end = n - 1; end > 0; end--) {
+			double top = a[from];
+			siftDown(a, from, 0, a[from + end], end);
+			a[from + end] = top;
+		}
+	}
+
+	// The heaps below are 0-based max-heaps over a[base, base + n). Each sift
+	// moves e down from the hole at i rather than swapping at every level.
+
+	private static <T> void siftDown(T[] a, int base, int i, T e, int n, Comparator<? super T> comp,
+			SortMetrics metrics) {
+		int child;
+		while ((child = 2 * i + 1) < n) {
+			if (child + 1 < n) {
+				metrics.comparison();
+				if (comp.compare(a[base + child + 1], a[base + child]) > 0) {
+					child++;
+				}
+			}
+			metrics.comparison();
+			if (comp.compare(a[base + child], e) <= 0) {
+				break;
+			}
+			a[base + i] = a[base + child];
+			metrics.move(1);
+			i = child;
+		}
+		a[base + i] = e;
+		metrics.move(1);
+	}
+
+	// Floyd's variant for the sortdown phase: e came from the bottom of the
+	// heap and almost always belongs near it, so walk the larger children all
+	// the way to a leaf and then climb back up. That saves about half the
+	// comparisons, which matters when compare is a virtual call.
+	private static <T> void siftDownToLeaf(T[] a, int base, T e, int n, Comparator<? super T> comp,
+			SortMetrics metrics) {
+		int i = 0;
+		int child;
+		while ((child = 2 * i + 1) < n) {
+			if (child + 1 < n) {
+				metrics.comparison();
+				if (comp.compare(a[base + child + 1], a[base + child]) > 0) {
+					child++;
+				}
+			}
+			a[base + i] = a[base + child];
+			metrics.move(1);
+			i = child;
+		}
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			metrics.comparison();
+			if (comp.compare(a[base + parent], e) >= 0) {
+				break;
+			}
+			a[base + i] = a[base + parent];
+			metrics.move(1);
+			i = parent;
+		}
+		a[base + i] = e;
+		metrics.move(1);
+	}
+
+	private static void siftDown(int[] a, int base, int i, int e, int n, SortMetrics metrics) {
+		int child;
+		while ((child = 2 * i + 1) < n) {
+			if (child + 1 < n) {
+				metrics.comparison();
+				if (a[base + child + 1] > a[base + child]) {
+					child++;
+				}
+			}
+			metrics.comparison();
+			if (a[base + child] <= e) {
+				break;
+			}
+			a[base + i] = a[base + child];
+			metrics.move(1);
+			i = child;
+		}
+		a[base + i] = e;
+		metrics.move(1);
+	}
+
+	private static void siftDown(long[] a, int base, int i, long e, int n) {
+		int child;
+		while ((child = 2 * i + 1) < n) {
+			if (child + 1 < n && a[base + child + 1] > a[base + child]) {
+				child++;
+			}
+			if (a[base + child] <= e) {
+				break;
+			}
+			a[base + i] = a[base + child];
+			i = child;
+		}
+		a[base + i] = e;
+	}
+
+	private static void siftDown(double[] a, int base, int i, double e, int n) {
+		int child;
+		while ((child = 2 * i + 1) < n) {
+			if (child + 1 < n && Double.compare(a[base + child + 1], a[base + child]) > 0) {
+				child++;
+			}
+			if (Double.compare(a[base + child], e) <= 0) {
+				break;
+			}
+			a[base + i] = a[base + child];
+			i = child;
+		}
+		a[base + i] = e;
+	}
+
+	static void rangeCheck(int length, int from, int to) {
+		if (from > to) {
+			throw new IllegalArgumentException("from(" + from + ") > to(" + to + ")");
+		}
+		if (from < 0) {
+			throw new ArrayIndexOutOfBoundsException(from);
+		}
+		if (to > length) {
+			throw new ArrayIndexOutOfBoundsException(to);
+		}
+	}
+}
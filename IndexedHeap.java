@@ -0,0 +1,287 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+/**
+ * An addressable binary min-heap. insert returns an int handle that can later
+ * be used to change the element's key or remove it in O(log n), so callers
+ * such as Dijkstra's algorithm or a timer wheel can update entries in place
+ * instead of inserting stale duplicates.
+ *
+ * Handles are small ints that are reused once their element leaves the heap,
+ * and every per-handle structure is a primitive array indexed by handle.
+ *
+ * @author Sam Stieby
+ */
+public class IndexedHeap<T> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int NOT_IN_HEAP = -1;
+
+	private final Comparator<? super T> comp;
+	// heap[i] is the handle stored at heap position i (0-based).
+	private int[] heap;
+	// pos[h] is the heap position of handle h, or NOT_IN_HEAP.
+	private int[] pos;
+	// keys[h] is the element for handle h.
+	private Object[] keys;
+	// Released handles are chained through nextFree.
+	private int[] nextFree;
+	private int freeHead;
+	private int handleCount;
+	private int size;
+
+	public IndexedHeap() {
+		this(DEFAULT_CAPACITY, null);
+	}
+
+	public IndexedHeap(Comparator<? super T> comp) {
+		this(DEFAULT_CAPACITY, comp);
+	}
+
+	/**
+	 * @param initialCapacity number of elements to reserve room for
+	 * @param comp            the ordering, or null for the natural ordering
+	 */
+	public IndexedHeap(int initialCapacity, Comparator<? super T> comp) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		}
+		this.comp = comp;
+		this.heap = new int[initialCapacity];
+		this.pos = new int[initialCapacity];
+		this.keys = new Object[initialCapacity];
+		this.nextFree = new int[initialCapacity];
+		this.freeHead = NOT_IN_HEAP;
+		this.handleCount = 0;
+		this.size = 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Adds an element and returns the handle that refers to it while it stays
+	 * in the heap.
+	 */
+	public int insert(T key) {
+		int h = allocateHandle();
+		this.keys[h] = key;
+		this.heap[this.size] = h;
+		this.pos[h] = this.size;
+		this.size++;
+		percUp(this.size - 1);
+		return h;
+	}
+
+	public boolean contains(int handle) {
+		return handle >= 0 && handle < this.handleCount && this.pos[handle] != NOT_IN_HEAP;
+	}
+
+	/**
+	 * Returns the element currently stored under the handle.
+	 *
+	 * @throws NoSuchElementException if the handle is not in the heap
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int handle) {
+		checkHandle(handle);
+		return (T) this.keys[handle];
+	}
+
+	/**
+	 * Returns the handle of the smallest element.
+	 *
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public int peekHandle() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return this.heap[0];
+	}
+
+	/**
+	 * Returns the smallest element without removing it, or null if the heap is
+	 * empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() {
+		return this.size == 0 ? null : (T) this.keys[this.heap[0]];
+	}
+
+	/**
+	 * Removes and returns the smallest element, or null if the heap is empty.
+	 * Its handle becomes free for reuse.
+	 */
+	public T deleteMin() {
+		if (this.size == 0) {
+			return null;
+		}
+		return remove(this.heap[0]);
+	}
+
+	/**
+	 * Removes the element stored under the handle and returns it.
+	 *
+	 * @throws NoSuchElementException if the handle is not in the heap
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(int handle) {
+		checkHandle(handle);
+		int i = this.pos[handle];
+		T key = (T) this.keys[handle];
+		this.size--;
+		if (i != this.size) {
+			int last = this.heap[this.size];
+			this.heap[i] = last;
+			this.pos[last] = i;
+			if (!percUp(i)) {
+				percDown(i);
+			}
+		}
+		releaseHandle(handle);
+		return key;
+	}
+
+	/**
+	 * Replaces the element under the handle with a smaller or equal one.
+	 *
+	 * @throws IllegalArgumentException if the new key is larger
+	 * @throws NoSuchElementException   if the handle is not in the heap
+	 */
+	@SuppressWarnings("unchecked")
+	public void decreaseKey(int handle, T key) {
+		checkHandle(handle);
+		if (compare(key, (T) this.keys[handle]) > 0) {
+			throw new IllegalArgumentException("New key is larger than the current key");
+		}
+		this.keys[handle] = key;
+		percUp(this.pos[handle]);
+	}
+
+	/**
+	 * Replaces the element under the handle with a larger or equal one.
+	 *
+	 * @throws IllegalArgumentException if the new key is smaller
+	 * @throws NoSuchElementException   if the handle is not in the heap
+	 */
+	@SuppressWarnings("unchecked")
+	public void increaseKey(int handle, T key) {
+		checkHandle(handle);
+		if (compare(key, (T) this.keys[handle]) < 0) {
+			throw new IllegalArgumentException("New key is smaller than the current key");
+		}
+		this.keys[handle] = key;
+		percDown(this.pos[handle]);
+	}
+
+	/**
+	 * Replaces the element under the handle, moving it whichever way the new
+	 * key requires.
+	 *
+	 * @throws NoSuchElementException if the handle is not in the heap
+	 */
+	public void update(int handle, T key) {
+		checkHandle(handle);
+		this.keys[handle] = key;
+		int i = this.pos[handle];
+		if (!percUp(i)) {
+			percDown(i);
+		}
+	}
+
+	public String toString() {
+		Object[] elements = new Object[this.size];
+		for (int i = 0; i < this.size; i++) {
+			elements[i] = this.keys[this.heap[i]];
+		}
+		return Arrays.toString(elements);
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(T x, T y) {
+		if (this.comp == null) {
+			return ((Comparable<? super T>) x).compareTo(y);
+		}
+		return this.comp.compare(x, y);
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean less(int h1, int h2) {
+		return compare((T) this.keys[h1], (T) this.keys[h2]) < 0;
+	}
+
+	// Moves the handle at i up by shifting parents into the hole. Returns true
+	// if it moved.
+	private boolean percUp(int i) {
+		int h = this.heap[i];
+		int start = i;
+		while (i > 0) {
+			int p = (i - 1) / 2;
+			int ph = this.heap[p];
+			if (!less(h, ph)) {
+				break;
+			}
+			this.heap[i] = ph;
+			this.pos[ph] = i;
+			i = p;
+		}
+		this.heap[i] = h;
+		this.pos[h] = i;
+		return i != start;
+	}
+
+	private void percDown(int i) {
+		int h = this.heap[i];
+		int child;
+		while ((child = 2 * i + 1) < this.size) {
+			if (child + 1 < this.size && less(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			int ch = this.heap[child];
+			if (!less(ch, h)) {
+				break;
+			}
+			this.heap[i] = ch;
+			this.pos[ch] = i;
+			i = child;
+		}
+		this.heap[i] = h;
+		this.pos[h] = i;
+	}
+
+	private void checkHandle(int handle) {
+		if (!contains(handle)) {
+			throw new NoSuchElementException("No element for handle " + handle);
+		}
+	}
+
+	private int allocateHandle() {
+		if (this.freeHead != NOT_IN_HEAP) {
+			int h = this.freeHead;
+			this.freeHead = this.nextFree[h];
+			return h;
+		}
+		if (this.handleCount == this.pos.length) {
+			int capacity = this.pos.length + Math.max(this.pos.length, DEFAULT_CAPACITY);
+			this.heap = Arrays.copyOf(this.heap, capacity);
+			this.pos = Arrays.copyOf(this.pos, capacity);
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.nextFree = Arrays.copyOf(this.nextFree, capacity);
+		}
+		return this.handleCount++;
+	}
+
+	private void releaseHandle(int handle) {
+		this.pos[handle] = NOT_IN_HEAP;
+		this.keys[handle] = null;
+		this.nextFree[handle] = this.freeHead;
+		this.freeHead = handle;
+	}
+}
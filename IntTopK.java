@@ -0,0 +1,118 @@
+import java.util.stream.IntStream;
+
+/**
+ * The k largest (or smallest) ints of a stream, kept in an int[] min-heap of
+ * size k. Works like TopK without boxing each element.
+ *
+ * @author Sam Stieby
+ */
+public class IntTopK {
+
+	private final int k;
+	private final boolean largest;
+	private final int[] heap;
+	private int size;
+
+	/**
+	 * @param k       how many elements to keep
+	 * @param largest true to keep the k largest, false for the k smallest
+	 */
+	public IntTopK(int k, boolean largest) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative: " + k);
+		}
+		this.k = k;
+		this.largest = largest;
+		this.heap = new int[k];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the k largest or smallest elements of the stream, best first.
+	 * Parallel streams keep one IntTopK per thread and merge them.
+	 */
+	public static int[] of(IntStream stream, int k, boolean largest) {
+		return stream.collect(() -> new IntTopK(k, largest), IntTopK::offer, IntTopK::merge).toSortedArray();
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Considers one element, keeping it if it is among the best k so far.
+	 *
+	 * @return true if the element was kept
+	 */
+	public boolean offer(int element) {
+		if (this.size < this.k) {
+			percUp(this.size++, element);
+			return true;
+		}
+		if (this.k == 0 || !worse(this.heap[0], element)) {
+			return false;
+		}
+		percDown(element);
+		return true;
+	}
+
+	/**
+	 * Folds another partial result into this one and returns this.
+	 */
+	public IntTopK merge(IntTopK other) {
+		for (int i = 0; i < other.size; i++) {
+			offer(other.heap[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the kept elements, best first.
+	 */
+	public int[] toSortedArray() {
+		int[] elements = new int[this.size];
+		System.arraycopy(this.heap, 0, elements, 0, this.size);
+		HeapSort.sort(elements);
+		if (this.largest) {
+			for (int i = 0, j = elements.length - 1; i < j; i++, j--) {
+				int t = elements[i];
+				elements[i] = elements[j];
+				elements[j] = t;
+			}
+		}
+		return elements;
+	}
+
+	// True if x ranks below y, i.e. x belongs nearer the top of the heap.
+	private boolean worse(int x, int y) {
+		return this.largest ? x < y : x > y;
+	}
+
+	private void percUp(int i, int e) {
+		while (i > 0) {
+			int p = (i - 1) / 2;
+			if (!worse(e, this.heap[p])) {
+				break;
+			}
+			this.heap[i] = this.heap[p];
+			i = p;
+		}
+		this.heap[i] = e;
+	}
+
+	private void percDown(int e) {
+		int i = 0;
+		int child;
+		while ((child = 2 * i + 1) < this.size) {
+			if (child + 1 < this.size && worse(this.heap[child + 1], this.heap[child])) {
+				child++;
+			}
+			if (!worse(this.heap[child], e)) {
+				break;
+			}
+			this.heap[i] = this.heap[child];
+			i = child;
+		}
+		this.heap[i] = e;
+	}
+}
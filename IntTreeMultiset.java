@@ -0,0 +1,205 @@
+import java.util.Arrays;
+
+/**
+ * A sorted multiset of ints, stored as a left-leaning red-black tree with a
+ * count for each distinct key. Adding a duplicate only increments a count,
+ * so n adds with d distinct keys cost O(n log d). Tree nodes live in
+ * parallel primitive arrays indexed by node number, so nothing is boxed.
+ *
+ * @author Sam Stieby
+ */
+public class IntTreeMultiset {
+
+	private static final int NIL = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+	// A left-leaning red-black tree over fewer than 2^31 keys is at most 62
+	// levels deep.
+	private static final int MAX_HEIGHT = 64;
+
+	private int[] keys;
+	private int[] counts;
+	private int[] left;
+	private int[] right;
+	private boolean[] red;
+	private int root;
+	private int nodes;
+	private long size;
+
+	public IntTreeMultiset() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param distinctCapacity number of distinct keys to reserve room for
+	 */
+	public IntTreeMultiset(int distinctCapacity) {
+		int capacity = Math.max(distinctCapacity, 1);
+		this.keys = new int[capacity];
+		this.counts = new int[capacity];
+		this.left = new int[capacity];
+		this.right = new int[capacity];
+		this.red = new boolean[capacity];
+		this.root = NIL;
+		this.nodes = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of elements, counting duplicates.
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the number of distinct keys.
+	 */
+	public int distinctSize() {
+		return this.nodes;
+	}
+
+	public boolean contains(int key) {
+		return find(key) != NIL;
+	}
+
+	/**
+	 * Returns how many times key has been added.
+	 */
+	public int count(int key) {
+		int x = find(key);
+		return x == NIL ? 0 : this.counts[x];
+	}
+
+	public void add(int key) {
+		int x = find(key);
+		if (x != NIL) {
+			this.counts[x]++;
+		} else {
+			this.root = insert(this.root, key);
+			this.red[this.root] = false;
+		}
+		this.size++;
+	}
+
+	public void addAll(int[] keys) {
+		for (int key : keys) {
+			add(key);
+		}
+	}
+
+	/**
+	 * Writes every element in ascending order, duplicates included, into dst
+	 * starting at offset.
+	 *
+	 * @return the index just past the last element written
+	 */
+	public int toSortedArray(int[] dst, int offset) {
+		int[] stack = new int[MAX_HEIGHT];
+		int top = 0;
+		int x = this.root;
+		int k = offset;
+		while (x != NIL || top > 0) {
+			while (x != NIL) {
+				stack[top++] = x;
+				x = this.left[x];
+			}
+			x = stack[--top];
+			Arrays.fill(dst, k, k + this.counts[x], this.keys[x]);
+			k += this.counts[x];
+			x = this.right[x];
+		}
+		return k;
+	}
+
+	/**
+	 * Sorts the array into ascending order by adding it to a multiset and
+	 * reading it back in order.
+	 */
+	public static void sort(int[] a) {
+		IntTreeMultiset tree = new IntTreeMultiset();
+		tree.addAll(a);
+		tree.toSortedArray(a, 0);
+	}
+
+	private int find(int key) {
+		int x = this.root;
+		while (x != NIL) {
+			int k = this.keys[x];
+			if (key < k) {
+				x = this.left[x];
+			} else if (key > k) {
+				x = this.right[x];
+			} else {
+				return x;
+			}
+		}
+		return NIL;
+	}
+
+	// Inserts a key known not to be in the subtree at h and returns the new
+	// subtree root.
+	private int insert(int h, int key) {
+		if (h == NIL) {
+			return newNode(key);
+		}
+		if (key < this.keys[h]) {
+			int child = insert(this.left[h], key);
+			this.left[h] = child;
+		} else {
+			int child = insert(this.right[h], key);
+			this.right[h] = child;
+		}
+		if (isRed(this.right[h]) && !isRed(this.left[h])) {
+			h = rotateLeft(h);
+		}
+		if (isRed(this.left[h]) && isRed(this.left[this.left[h]])) {
+			h = rotateRight(h);
+		}
+		if (isRed(this.left[h]) && isRed(this.right[h])) {
+			this.red[h] = true;
+			this.red[this.left[h]] = false;
+			this.red[this.right[h]] = false;
+		}
+		return h;
+	}
+
+	private boolean isRed(int x) {
+		return x != NIL && this.red[x];
+	}
+
+	private int rotateLeft(int h) {
+		int x = this.right[h];
+		this.right[h] = this.left[x];
+		this.left[x] = h;
+		this.red[x] = this.red[h];
+		this.red[h] = true;
+		return x;
+	}
+
+	private int rotateRight(int h) {
+		int x = this.left[h];
+		this.left[h] = this.right[x];
+		this.right[x] = h;
+		this.red[x] = this.red[h];
+		this.red[h] = true;
+		return x;
+	}
+
+	private int newNode(int key) {
+		if (this.nodes == this.keys.length) {
+			int capacity = this.nodes + Math.max(this.nodes, DEFAULT_CAPACITY);
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.counts = Arrays.copyOf(this.counts, capacity);
+			this.left = Arrays.copyOf(this.left, capacity);
+			this.right = Arrays.copyOf(this.right, capacity);
+			this.red = Arrays.copyOf(this.red, capacity);
+		}
+		int x = this.nodes++;
+		this.keys[x] = key;
+		this.counts[x] = 1;
+		this.left[x] = NIL;
+		this.right[x] = NIL;
+		this.red[x] = true;
+		return x;
+	}
+}
@@ -0,0 +1,131 @@
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorts objects by a primitive key without comparing the objects.
+ *
+ * Sorting an Integer[] or any object array with a comparator spends most of
+ * its time following references to objects scattered across the heap, once
+ * per comparison. These sorts read each object's key once into a
+ * primitive array, together with the object's index, and sort that with
+ * the primitive sorts, which stream through memory. The objects are then
+ * moved once, into the order the indices give.
+ *
+ * An int key is sorted with RadixSort.lsdPairs, carrying an int[] of
+ * indices along, which is stable. Below 1024 elements the key instead
+ * fills the high half of a long and the index the low half, and the longs
+ * are sorted with Quicksort; ties are ordered by index, so this is stable
+ * too.
+ *
+ * A long key does not fit beside an index, so only its high half is
+ * packed. After sorting, each run of entries that share a high half is
+ * sorted again on the low half, read from a long[] of the keys, with the
+ * same choice of engine. Keys spread over the whole long range, such as
+ * hashes, seldom share a high half and leave little for the second pass.
+ * Keys confined to a narrow range are the worst case: millisecond
+ * timestamps, for instance, share their high half across 49.7 days, so
+ * the whole array is one run and is sorted twice.
+ *
+ * Both allocate a copy of the references. The int-keyed sort also
+ * allocates two int[]s and the radix sort's scratch arrays. The
+ * long-keyed sort also allocates a long[] of packed entries, a long[] of
+ * keys and the radix sort's scratch array.
+ *
+ * @author Sam Stieby
+ */
+public final class KeyPrefixSort {
+
+	// Below this size quicksorting the packed keys beats paying for the
+	// radix sort's histograms.
+	private static final int RADIX_THRESHOLD = 1024;
+	private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+	private KeyPrefixSort() {
+	}
+
+	/**
+	 * Sorts a into ascending order of key. The sort is stable. The key
+	 * function is called once per element.
+	 */
+	public static <T> void sortByIntKey(T[] a, ToIntFunction<? super T> key) {
+		int n = a.length;
+		if (n < 2) {
+			return;
+		}
+		if (n < RADIX_THRESHOLD) {
+			long[] packed = new long[n];
+			for (int i = 0; i < n; i++) {
+				packed[i] = (long) key.applyAsInt(a[i]) << 32 | i;
+			}
+			Quicksort.sort(packed);
+			permute(a, packed);
+			return;
+		}
+		// The indices are already in order, so only the 32 key bits need
+		// sorting.
+		int[] keys = new int[n];
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = key.applyAsInt(a[i]);
+			order[i] = i;
+		}
+		RadixSort.lsdPairs(keys, order);
+		CoSort.permute(a, order);
+	}
+
+	/**
+	 * Sorts a into ascending order of key. The sort is stable. The key
+	 * function is called once per element.
+	 */
+	public static <T> void sortByLongKey(T[] a, ToLongFunction<? super T> key) {
+		int n = a.length;
+		if (n < 2) {
+			return;
+		}
+		long[] keys = new long[n];
+		long[] packed = new long[n];
+		long[] scratch = n >= RADIX_THRESHOLD ? new long[n] : null;
+		for (int i = 0; i < n; i++) {
+			long k = key.applyAsLong(a[i]);
+			keys[i] = k;
+			packed[i] = k & ~INDEX_MASK | i;
+		}
+		sortPacked(packed, 0, n, scratch);
+
+		// Break ties in the high half on the low half. Flipping its top bit
+		// lets a signed sort order it as unsigned.
+		int from = 0;
+		while (from < n) {
+			long prefix = packed[from] & ~INDEX_MASK;
+			int to = from + 1;
+			while (to < n && (packed[to] & ~INDEX_MASK) == prefix) {
+				to++;
+			}
+			if (to - from > 1) {
+				for (int i = from; i < to; i++) {
+					int index = (int) packed[i];
+					packed[i] = (long) ((int) keys[index] ^ Integer.MIN_VALUE) << 32 | index;
+				}
+				sortPacked(packed, from, to, scratch);
+			}
+			from = to;
+		}
+		permute(a, packed);
+	}
+
+	private static void sortPacked(long[] packed, int from, int to, long[] scratch) {
+		if (to - from >= RADIX_THRESHOLD) {
+			RadixSort.lsd(packed, from, to, scratch);
+		} else {
+			Quicksort.sort(packed, from, to);
+		}
+	}
+
+	// Moves a[i] to the position whose packed entry holds index i.
+	private static <T> void permute(T[] a, long[] packed) {
+		T[] copy = a.clone();
+		for (int i = 0; i < a.length; i++) {
+			a[i] = copy[(int) packed[i]];
+		}
+	}
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary heap of primitive longs. It offers the same operations as
+ * BinaryHeap without boxing each element, and can order its elements either
+ * smallest-first (the default) or largest-first.
+ *
+ * @author Sam Stieby
+ */
+public class LongBinaryHeap {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+	// 1-based like BinaryHeap: the children of i are 2i and 2i + 1.
+	private long[] array;
+	private int size;
+	private final boolean maxHeap;
+
+	public LongBinaryHeap() {
+		this(DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * @param initialCapacity number of elements to reserve room for
+	 * @param maxHeap         true to have deleteMin return the largest element
+	 *                        instead of the smallest
+	 */
+	public LongBinaryHeap(int initialCapacity, boolean maxHeap) {
+		if (initialCapacity < 0 || initialCapacity > MAX_ARRAY_SIZE - 1) {
+			throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+		}
+		this.array = new long[initialCapacity + 1];
+		this.size = 0;
+		this.maxHeap = maxHeap;
+	}
+
+	/**
+	 * Builds a heap from a copy of the given values in O(n) time.
+	 *
+	 * @param values  the initial elements; the array is not modified
+	 * @param maxHeap true for a largest-first heap
+	 */
+	public LongBinaryHeap(long[] values, boolean maxHeap) {
+		this(values.length, maxHeap);
+		System.arraycopy(values, 0, this.array, 1, values.length);
+		this.size = values.length;
+		buildHeap();
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean isMaxHeap() {
+		return this.maxHeap;
+	}
+
+	public void insert(long element) {
+		if (this.size == this.array.length - 1) {
+			grow(this.size + 1);
+		}
+		this.size++;
+		percUp(this.size, element);
+	}
+
+	/**
+	 * Returns the top element without removing it.
+	 *
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public long peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		return this.array[1];
+	}
+
+	/**
+	 * Removes and returns the top element: the smallest one, or the largest in
+	 * a max-heap.
+	 *
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public long deleteMin() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		long top = this.array[1];
+		long last = this.array[this.size];
+		this.size--;
+		if (this.size > 0) {
+			percDown(1, last);
+		}
+		return top;
+	}
+
+	/**
+	 * Restores the heap order over the whole array in O(n) time.
+	 */
+	public void buildHeap() {
+		for (int i = this.size / 2; i > 0; i--) {
+			percDown(i, this.array[i]);
+		}
+	}
+
+	public void ensureCapacity(int minCapacity) {
+		if (minCapacity > this.array.length - 1) {
+			grow(minCapacity);
+		}
+	}
+
+	public void trimToSize() {
+		if (this.size < this.array.length - 1) {
+			this.array = Arrays.copyOf(this.array, this.size + 1);
+		}
+	}
+
+	public String toString() {
+		return Arrays.toString(Arrays.copyOfRange(this.array, 1, this.size + 1));
+	}
+
+	/**
+	 * Sorts the array into ascending order in place with heapsort.
+	 *
+	 * @param a the array to sort
+	 */
+	public static void sort(long[] a) {
+		HeapSort.sort(a);
+	}
+
+	private boolean before(long x, long y) {
+		return this.maxHeap ? x > y : x < y;
+	}
+
+	// Moves e up from the hole at i instead of swapping at every level.
+	private void percUp(int i, long e) {
+		while (i > 1 && before(e, this.array[i / 2])) {
+			this.array[i] = this.array[i / 2];
+			i /= 2;
+		}
+		this.array[i] = e;
+	}
+
+	// Moves e down from the hole at i.
+	private void percDown(int i, long e) {
+		int child;
+		while ((child = 2 * i) <= this.size) {
+			if (child < this.size && before(this.array[child + 1], this.array[child])) {
+				child++;
+			}
+			if (!before(this.array[child], e)) {
+				break;
+			}
+			this.array[i] = this.array[child];
+			i = child;
+		}
+		this.array[i] = e;
+	}
+
+	private void grow(int minCapacity) {
+		if (minCapacity > MAX_ARRAY_SIZE - 1) {
+			throw new OutOfMemoryError("Required heap capacity too large: " + minCapacity);
+		}
+		int capacity = this.array.length - 1;
+		int grown = capacity + Math.max(capacity, DEFAULT_CAPACITY);
+		if (grown < 0 || grown > MAX_ARRAY_SIZE - 1) {
+			grown = MAX_ARRAY_SIZE - 1;
+		}
+		this.array = Arrays.copyOf(this.array, Math.max(grown, minCapacity) + 1);
+	}
+}
@@ -0,0 +1,636 @@
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A stable, adaptive mergesort for int[] and object arrays that takes
+ * advantage of order already in the input.
+ *
+ * It splits the array into its natural runs, reversing strictly descending
+ * ones in place and extending runs under 32 elements with binary insertion
+ * sort. Runs are merged in the order Powersort (Munro and Wild) picks, which
+ * keeps the total merge cost within a small constant of optimal for the
+ * run lengths found. Each merge first skips the elements already in place
+ * at either end, and switches to galloping, copying whole blocks found by
+ * exponential search, once one side wins seven times in a row.
+ *
+ * Already sorted or reversed input takes n - 1 comparisons; input made of
+ * r runs takes O(n log r). The merge buffer is at most n/2 elements and is
+ * only allocated when a merge needs it.
+ *
+ * @author Sam Stieby
+ */
+public final class NaturalMergeSort {
+
+	private static final int MIN_RUN = 32;
+	private static final int MIN_GALLOP = 7;
+	// Powersort's stack holds runs with strictly increasing powers, and a
+	// power is at most 32.
+	private static final int MAX_STACK = 33;
+
+	private NaturalMergeSort() {
+	}
+
+	public static void sort(int[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 */
+	public static void sort(int[] a, int from, int to) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		new IntMerger(a).sort(from, to);
+	}
+
+	public static <T extends Comparable<? super T>> void sort(T[] a) {
+		sort(a, 0, a.length, null);
+	}
+
+	public static <T> void sort(T[] a, Comparator<? super T> comp) {
+		sort(a, 0, a.length, comp);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order. Equal elements keep their
+	 * original order.
+	 *
+	 * @param comp the ordering, or null for the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(T[] a, int from, int to, Comparator<? super T> comp) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		if (comp == null) {
+			comp = (Comparator<? super T>) Comparator.naturalOrder();
+		}
+		new ObjectMerger<T>(a, comp).sort(from, to);
+	}
+
+	/**
+	 * Returns the Powersort power of the boundary between the adjacent runs
+	 * [beginA, beginB) and [beginB, endB) within [from, to): the depth at
+	 * which the boundary would sit in a perfectly balanced merge tree. Both
+	 * run midpoints are scaled to 31-bit fractions of the range, and the
+	 * power is the length of their common binary prefix.
+	 */
+	private static int nodePower(int from, int to, int beginA, int beginB, int endB) {
+		long twoN = 2L * (to - from);
+		long left = (long) beginA + beginB - 2L * from;
+		long right = (long) beginB + endB - 2L * from;
+		int a = (int) ((left << 31) / twoN);
+		int b = (int) ((right << 31) / twoN);
+		return Integer.numberOfLeadingZeros(a ^ b);
+	}
+
+	private static final class IntMerger {
+		private final int[] a;
+		private int[] tmp;
+
+		IntMerger(int[] a) {
+			this.a = a;
+		}
+
+		void sort(int from, int to) {
+			int[] runBegin = new int[MAX_STACK];
+			int[] runPower = new int[MAX_STACK];
+			int top = 0;
+			int beginA = from;
+			int endA = nextRun(from, to);
+			while (endA < to) {
+				int beginB = endA;
+				int endB = nextRun(beginB, to);
+				int power = nodePower(from, to, beginA, beginB, endB);
+				while (top > 0 && runPower[top - 1] > power) {
+					top--;
+					merge(runBegin[top], beginA, endA);
+					beginA = runBegin[top];
+				}
+				runBegin[top] = beginA;
+				runPower[top] = power;
+				top++;
+				beginA = beginB;
+				endA = endB;
+			}
+			while (top > 0) {
+				top--;
+				merge(runBegin[top], beginA, endA);
+				beginA = runBegin[top];
+			}
+		}
+
+		/**
+		 * Finds the run starting at begin, reverses it if it is descending
+		 * and extends it to MIN_RUN elements if it is shorter, returning
+		 * where it ends.
+		 */
+		private int nextRun(int begin, int to) {
+			int[] a = this.a;
+			int end = begin + 1;
+			if (end == to) {
+				return end;
+			}
+			if (a[end] < a[begin]) {
+				// Strictly descending, so reversing it cannot reorder equal
+				// elements.
+				while (end < to && a[end] < a[end - 1]) {
+					end++;
+				}
+				for (int i = begin, j = end - 1; i < j; i++, j--) {
+					int t = a[i];
+					a[i] = a[j];
+					a[j] = t;
+				}
+			} else {
+				while (end < to && a[end] >= a[end - 1]) {
+					end++;
+				}
+			}
+			if (end - begin < MIN_RUN && end < to) {
+				int forced = Math.min(begin + MIN_RUN, to);
+				binaryInsertionSort(begin, end, forced);
+				end = forced;
+			}
+			return end;
+		}
+
+		// Inserts a[sorted, to) into the sorted range a[from, sorted).
+		private void binaryInsertionSort(int from, int sorted, int to) {
+			int[] a = this.a;
+			for (int i = sorted; i < to; i++) {
+				int x = a[i];
+				int position = bound(x, a, from, i, true, false);
+				System.arraycopy(a, position, a, position + 1, i - position);
+				a[position] = x;
+			}
+		}
+
+		/**
+		 * Merges the adjacent sorted ranges a[lo, mid) and a[mid, hi).
+		 */
+		private void merge(int lo, int mid, int hi) {
+			int[] a = this.a;
+			if (a[mid - 1] <= a[mid]) {
+				return;
+			}
+			// Left elements no larger than the right run's first, and right
+			// elements no smaller than the left run's last, are already in
+			// place.
+			lo = bound(a[mid], a, lo, mid, true, false);
+			hi = bound(a[mid - 1], a, mid, hi, false, true);
+			if (mid - lo <= hi - mid) {
+				mergeLo(lo, mid, hi);
+			} else {
+				mergeHi(lo, mid, hi);
+			}
+		}
+
+		// Merges front to back, buffering the shorter left run. Requires
+		// a[lo] > a[mid] and a[mid - 1] > a[hi - 1].
+		private void mergeLo(int lo, int mid, int hi) {
+			int[] a = this.a;
+			int[] t = buffer(mid - lo);
+			int leftEnd = mid - lo;
+			System.arraycopy(a, lo, t, 0, leftEnd);
+			int i = 0;
+			int j = mid;
+			int k = lo;
+			a[k++] = a[j++];
+			outer: while (j < hi) {
+				int leftWins = 0;
+				int rightWins = 0;
+				do {
+					if (a[j] < t[i]) {
+						a[k++] = a[j++];
+						rightWins++;
+						leftWins = 0;
+						if (j == hi) {
+							break outer;
+						}
+					} else {
+						a[k++] = t[i++];
+						leftWins++;
+						rightWins = 0;
+						if (i == leftEnd) {
+							break outer;
+						}
+					}
+				} while ((leftWins | rightWins) < MIN_GALLOP);
+
+				do {
+					leftWins = bound(a[j], t, i, leftEnd, true, false) - i;
+					System.arraycopy(t, i, a, k, leftWins);
+					i += leftWins;
+					k += leftWins;
+					if (i == leftEnd) {
+						break outer;
+					}
+					a[k++] = a[j++];
+					if (j == hi) {
+						break outer;
+					}
+					rightWins = bound(t[i], a, j, hi, false, false) - j;
+					System.arraycopy(a, j, a, k, rightWins);
+					j += rightWins;
+					k += rightWins;
+					if (j == hi) {
+						break outer;
+					}
+					a[k++] = t[i++];
+					if (i == leftEnd) {
+						break outer;
+					}
+				} while (leftWins >= MIN_GALLOP || rightWins >= MIN_GALLOP);
+			}
+			// Whatever is left of the right run is already in place.
+			System.arraycopy(t, i, a, k, leftEnd - i);
+		}
+
+		// Merges back to front, buffering the shorter right run. Requires
+		// a[lo] > a[mid] and a[mid - 1] > a[hi - 1].
+		private void mergeHi(int lo, int mid, int hi) {
+			int[] a = this.a;
+			int[] t = buffer(hi - mid);
+			System.arraycopy(a, mid, t, 0, hi - mid);
+			int i = mid - 1;
+			int j = hi - mid - 1;
+			int k = hi - 1;
+			a[k--] = a[i--];
+			outer: while (i >= lo) {
+				int leftWins = 0;
+				int rightWins = 0;
+				do {
+					if (a[i] > t[j]) {
+						a[k--] = a[i--];
+						leftWins++;
+						rightWins = 0;
+						if (i < lo) {
+							break outer;
+						}
+					} else {
+						a[k--] = t[j--];
+						rightWins++;
+						leftWins = 0;
+						if (j < 0) {
+							break outer;
+						}
+					}
+				} while ((leftWins | rightWins) < MIN_GALLOP);
+
+				do {
+					leftWins = i + 1 - bound(t[j], a, lo, i + 1, true, true);
+					System.arraycopy(a, i + 1 - leftWins, a, k + 1 - leftWins, leftWins);
+					i -= leftWins;
+					k -= leftWins;
+					if (i < lo) {
+						break outer;
+					}
+					a[k--] = t[j--];
+					if (j < 0) {
+						break outer;
+					}
+					rightWins = j + 1 - bound(a[i], t, 0, j + 1, false, true);
+					System.arraycopy(t, j + 1 - rightWins, a, k + 1 - rightWins, rightWins);
+					j -= rightWins;
+					k -= rightWins;
+					if (j < 0) {
+						break outer;
+					}
+					a[k--] = a[i--];
+					if (i < lo) {
+						break outer;
+					}
+				} while (leftWins >= MIN_GALLOP || rightWins >= MIN_GALLOP);
+			}
+			// Whatever is left of the left run is already in place.
+			System.arraycopy(t, 0, a, k - j, j + 1);
+		}
+
+		private int[] buffer(int length) {
+			if (this.tmp == null || this.tmp.length < length) {
+				int capacity = this.tmp == null ? length : Math.max(length, this.tmp.length * 2);
+				this.tmp = new int[Math.min(capacity, (this.a.length >>> 1) + 1)];
+			}
+			return this.tmp;
+		}
+
+		/**
+		 * Returns the first index in [lo, hi) whose element is greater than
+		 * key, or at least key if inclusive is false. Searches with
+		 * exponentially growing steps from whichever end is given, so finding
+		 * a boundary k elements from that end takes O(log k) comparisons.
+		 */
+		private static int bound(int key, int[] a, int lo, int hi, boolean inclusive, boolean fromRight) {
+			int max = hi - lo;
+			int last = 0;
+			int offset = 1;
+			int l;
+			int r;
+			if (fromRight) {
+				while (offset <= max && (inclusive ? a[hi - offset] > key : a[hi - offset] >= key)) {
+					last = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0) {
+						offset = max + 1;
+					}
+				}
+				l = offset <= max ? hi - offset + 1 : lo;
+				r = hi - last;
+			} else {
+				while (offset <= max && (inclusive ? a[lo + offset - 1] <= key : a[lo + offset - 1] < key)) {
+					last = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0) {
+						offset = max + 1;
+					}
+				}
+				l = lo + last;
+				r = offset <= max ? lo + offset - 1 : hi;
+			}
+			while (l < r) {
+				int m = (l + r) >>> 1;
+				if (inclusive ? a[m] <= key : a[m] < key) {
+					l = m + 1;
+				} else {
+					r = m;
+				}
+			}
+			return l;
+		}
+	}
+
+	// The object version mirrors IntMerger with every comparison going
+	// through the Comparator.
+	private static final class ObjectMerger<T> {
+		private final T[] a;
+		private final Comparator<? super T> comp;
+		private T[] tmp;
+
+		ObjectMerger(T[] a, Comparator<? super T> comp) {
+			this.a = a;
+			this.comp = comp;
+		}
+
+		void sort(int from, int to) {
+			int[] runBegin = new int[MAX_STACK];
+			int[] runPower = new int[MAX_STACK];
+			int top = 0;
+			int beginA = from;
+			int endA = nextRun(from, to);
+			while (endA < to) {
+				int beginB = endA;
+				int endB = nextRun(beginB, to);
+				int power = nodePower(from, to, beginA, beginB, endB);
+				while (top > 0 && runPower[top - 1] > power) {
+					top--;
+					merge(runBegin[top], beginA, endA);
+					beginA = runBegin[top];
+				}
+				runBegin[top] = beginA;
+				runPower[top] = power;
+				top++;
+				beginA = beginB;
+				endA = endB;
+			}
+			while (top > 0) {
+				top--;
+				merge(runBegin[top], beginA, endA);
+				beginA = runBegin[top];
+			}
+		}
+
+		private int nextRun(int begin, int to) {
+			T[] a = this.a;
+			Comparator<? super T> comp = this.comp;
+			int end = begin + 1;
+			if (end == to) {
+				return end;
+			}
+			if (comp.compare(a[end], a[begin]) < 0) {
+				while (end < to && comp.compare(a[end], a[end - 1]) < 0) {
+					end++;
+				}
+				for (int i = begin, j = end - 1; i < j; i++, j--) {
+					T t = a[i];
+					a[i] = a[j];
+					a[j] = t;
+				}
+			} else {
+				while (end < to && comp.compare(a[end], a[end - 1]) >= 0) {
+					end++;
+				}
+			}
+			if (end - begin < MIN_RUN && end < to) {
+				int forced = Math.min(begin + MIN_RUN, to);
+				binaryInsertionSort(begin, end, forced);
+				end = forced;
+			}
+			return end;
+		}
+
+		private void binaryInsertionSort(int from, int sorted, int to) {
+			T[] a = this.a;
+			for (int i = sorted; i < to; i++) {
+				T x = a[i];
+				int position = bound(x, a, from, i, true, false);
+				System.arraycopy(a, position, a, position + 1, i - position);
+				a[position] = x;
+			}
+		}
+
+		private void merge(int lo, int mid, int hi) {
+			T[] a = this.a;
+			if (this.comp.compare(a[mid - 1], a[mid]) <= 0) {
+				return;
+			}
+			lo = bound(a[mid], a, lo, mid, true, false);
+			hi = bound(a[mid - 1], a, mid, hi, false, true);
+			if (mid - lo <= hi - mid) {
+				mergeLo(lo, mid, hi);
+			} else {
+				mergeHi(lo, mid, hi);
+			}
+		}
+
+		private void mergeLo(int lo, int mid, int hi) {
+			T[] a = this.a;
+			Comparator<? super T> comp = this.comp;
+			T[] t = buffer(mid - lo);
+			int leftEnd = mid - lo;
+			System.arraycopy(a, lo, t, 0, leftEnd);
+			int i = 0;
+			int j = mid;
+			int k = lo;
+			a[k++] = a[j++];
+			outer: while (j < hi) {
+				int leftWins = 0;
+				int rightWins = 0;
+				do {
+					if (comp.compare(a[j], t[i]) < 0) {
+						a[k++] = a[j++];
+						rightWins++;
+						leftWins = 0;
+						if (j == hi) {
+							break outer;
+						}
+					} else {
+						a[k++] = t[i++];
+						leftWins++;
+						rightWins = 0;
+						if (i == leftEnd) {
+							break outer;
+						}
+					}
+				} while ((leftWins | rightWins) < MIN_GALLOP);
+
+				do {
+					leftWins = bound(a[j], t, i, leftEnd, true, false) - i;
+					System.arraycopy(t, i, a, k, leftWins);
+					i += leftWins;
+					k += leftWins;
+					if (i == leftEnd) {
+						break outer;
+					}
+					a[k++] = a[j++];
+					if (j == hi) {
+						break outer;
+					}
+					rightWins = bound(t[i], a, j, hi, false, false) - j;
+					System.arraycopy(a, j, a, k, rightWins);
+					j += rightWins;
+					k += rightWins;
+					if (j == hi) {
+						break outer;
+					}
+					a[k++] = t[i++];
+					if (i == leftEnd) {
+						break outer;
+					}
+				} while (leftWins >= MIN_GALLOP || rightWins >= MIN_GALLOP);
+			}
+			System.arraycopy(t, i, a, k, leftEnd - i);
+			// Let the buffered references be collected.
+			Arrays.fill(t, 0, leftEnd, null);
+		}
+
+		private void mergeHi(int lo, int mid, int hi) {
+			T[] a = this.a;
+			Comparator<? super T> comp = this.comp;
+			T[] t = buffer(hi - mid);
+			int rightLength = hi - mid;
+			System.arraycopy(a, mid, t, 0, rightLength);
+			int i = mid - 1;
+			int j = rightLength - 1;
+			int k = hi - 1;
+			a[k--] = a[i--];
+			outer: while (i >= lo) {
+				int leftWins = 0;
+				int rightWins = 0;
+				do {
+					if (comp.compare(a[i], t[j]) > 0) {
+						a[k--] = a[i--];
+						leftWins++;
+						rightWins = 0;
+						if (i < lo) {
+							break outer;
+						}
+					} else {
+						a[k--] = t[j--];
+						rightWins++;
+						leftWins = 0;
+						if (j < 0) {
+							break outer;
+						}
+					}
+				} while ((leftWins | rightWins) < MIN_GALLOP);
+
+				do {
+					leftWins = i + 1 - bound(t[j], a, lo, i + 1, true, true);
+					System.arraycopy(a, i + 1 - leftWins, a, k + 1 - leftWins, leftWins);
+					i -= leftWins;
+					k -= leftWins;
+					if (i < lo) {
+						break outer;
+					}
+					a[k--] = t[j--];
+					if (j < 0) {
+						break outer;
+					}
+					rightWins = j + 1 - bound(a[i], t, 0, j + 1, false, true);
+					System.arraycopy(t, j + 1 - rightWins, a, k + 1 - rightWins, rightWins);
+					j -= rightWins;
+					k -= rightWins;
+					if (j < 0) {
+						break outer;
+					}
+					a[k--] = a[i--];
+					if (i < lo) {
+						break outer;
+					}
+				} while (leftWins >= MIN_GALLOP || rightWins >= MIN_GALLOP);
+			}
+			System.arraycopy(t, 0, a, k - j, j + 1);
+			Arrays.fill(t, 0, rightLength, null);
+		}
+
+		@SuppressWarnings("unchecked")
+		private T[] buffer(int length) {
+			if (this.tmp == null || this.tmp.length < length) {
+				int capacity = this.tmp == null ? length : Math.max(length, this.tmp.length * 2);
+				this.tmp = (T[]) Array.newInstance(this.a.getClass().getComponentType(),
+						Math.min(capacity, (this.a.length >>> 1) + 1));
+			}
+			return this.tmp;
+		}
+
+		private int bound(T key, T[] a, int lo, int hi, boolean inclusive, boolean fromRight) {
+			Comparator<? super T> comp = this.comp;
+			int max = hi - lo;
+			int last = 0;
+			int offset = 1;
+			int l;
+			int r;
+			if (fromRight) {
+				while (offset <= max && !before(comp.compare(a[hi - offset], key), inclusive)) {
+					last = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0) {
+						offset = max + 1;
+					}
+				}
+				l = offset <= max ? hi - offset + 1 : lo;
+				r = hi - last;
+			} else {
+				while (offset <= max && before(comp.compare(a[lo + offset - 1], key), inclusive)) {
+					last = offset;
+					offset = (offset << 1) + 1;
+					if (offset <= 0) {
+						offset = max + 1;
+					}
+				}
+				l = lo + last;
+				r = offset <= max ? lo + offset - 1 : hi;
+			}
+			while (l < r) {
+				int m = (l + r) >>> 1;
+				if (before(comp.compare(a[m], key), inclusive)) {
+					l = m + 1;
+				} else {
+					r = m;
+				}
+			}
+			return l;
+		}
+
+		// True if an element comparing c against the key belongs before
+		// the boundary.
+		private static boolean before(int c, boolean inclusive) {
+			return inclusive ? c <= 0 : c < 0;
+		}
+	}
+}
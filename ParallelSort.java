@@ -0,0 +1,482 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join sorts for int[] and object arrays: a parallel quicksort, which
+ * sorts in place, and a parallel mergesort, which needs an n-element buffer
+ * but splits its work evenly and is stable for objects.
+ *
+ * Ranges at or below the sequential threshold are handed to Quicksort, or
+ * to Arrays.sort for stable object leaves. A larger threshold means fewer,
+ * coarser tasks; a smaller one gives idle threads more work to steal.
+ *
+ * @author Sam Stieby
+ */
+public final class ParallelSort {
+
+	public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+	private ParallelSort() {
+	}
+
+	public static void quicksort(int[] a) {
+		quicksort(a, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Sorts the array with a parallel quicksort running in the given pool.
+	 *
+	 * @param threshold ranges this size or smaller are sorted sequentially
+	 */
+	public static void quicksort(int[] a, ForkJoinPool pool, int threshold) {
+		pool.invoke(new IntQuicksortTask(a, 0, a.length, Math.max(threshold, 2), 2 * log2(a.length)));
+	}
+
+	public static <T> void quicksort(T[] a, Comparator<? super T> comp) {
+		quicksort(a, comp, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Sorts the array with a parallel quicksort running in the given pool.
+	 *
+	 * @param comp      the ordering, or null for the natural ordering
+	 * @param threshold ranges this size or smaller are sorted sequentially
+	 */
+	public static <T> void quicksort(T[] a, Comparator<? super T> comp, ForkJoinPool pool, int threshold) {
+		comp = orNaturalOrder(comp);
+		pool.invoke(new QuicksortTask<T>(a, 0, a.length, comp, Math.max(threshold, 2), 2 * log2(a.length)));
+	}
+
+	public static void mergesort(int[] a) {
+		mergesort(a, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Sorts the array with a parallel mergesort running in the given pool.
+	 *
+	 * @param threshold ranges this size or smaller are sorted or merged
+	 *                  sequentially
+	 */
+	public static void mergesort(int[] a, ForkJoinPool pool, int threshold) {
+		int[] buffer = new int[a.length];
+		pool.invoke(new IntMergesortTask(a, buffer, 0, a.length, false, Math.max(threshold, 2)));
+	}
+
+	public static <T> void mergesort(T[] a, Comparator<? super T> comp) {
+		mergesort(a, comp, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Sorts the array with a stable parallel mergesort.
+	 *
+	 * @param comp the ordering, or null for the natural ordering
+	 */
+	public static <T> void mergesort(T[] a, Comparator<? super T> comp, ForkJoinPool pool, int threshold) {
+		comp = orNaturalOrder(comp);
+		T[] buffer = Arrays.copyOf(a, a.length);
+		pool.invoke(new MergesortTask<T>(a, buffer, 0, a.length, false, comp, Math.max(threshold, 2)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Comparator<? super T> orNaturalOrder(Comparator<? super T> comp) {
+		return comp != null ? comp : (Comparator<? super T>) Comparator.naturalOrder();
+	}
+
+	private static int log2(int n) {
+		return 32 - Integer.numberOfLeadingZeros(n);
+	}
+
+	/**
+	 * Partitions three ways around a median-of-three pivot, then sorts the
+	 * "less" side in a forked task and the "greater" side itself. Past the
+	 * depth limit it finishes sequentially, since Quicksort guards against
+	 * bad pivots.
+	 */
+	private static class IntQuicksortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] a;
+		private final int from;
+		private final int to;
+		private final int threshold;
+		private final int depth;
+		private IntQuicksortTask next;
+
+		IntQuicksortTask(int[] a, int from, int to, int threshold, int depth) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			int[] a = this.a;
+			int lo = this.from;
+			int hi = this.to;
+			int depth = this.depth;
+			IntQuicksortTask forked = null;
+			while (hi - lo > this.threshold && depth > 0) {
+				int mid = (lo + hi) >>> 1;
+				int pivot = median(a[lo], a[mid], a[hi - 1]);
+				// Dijkstra's three-way partition: [lo, lt) < pivot,
+				// [lt, i) == pivot, (gt, hi) > pivot.
+				int lt = lo;
+				int gt = hi - 1;
+				int i = lo;
+				while (i <= gt) {
+					int x = a[i];
+					if (x < pivot) {
+						a[i++] = a[lt];
+						a[lt++] = x;
+					} else if (x > pivot) {
+						a[i] = a[gt];
+						a[gt--] = x;
+					} else {
+						i++;
+					}
+				}
+				depth--;
+				IntQuicksortTask left = new IntQuicksortTask(a, lo, lt, this.threshold, depth);
+				left.fork();
+				// Chain forked tasks through the list so they can all be
+				// joined at the end.
+				left.next = forked;
+				forked = left;
+				lo = gt + 1;
+			}
+			Quicksort.sort(a, lo, hi);
+			while (forked != null) {
+				forked.join();
+				forked = forked.next;
+			}
+		}
+
+		private static int median(int x, int y, int z) {
+			return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+		}
+	}
+
+	private static class QuicksortTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] a;
+		private final int from;
+		private final int to;
+		private final Comparator<? super T> comp;
+		private final int threshold;
+		private final int depth;
+		private QuicksortTask<T> next;
+
+		QuicksortTask(T[] a, int from, int to, Comparator<? super T> comp, int threshold, int depth) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+			this.comp = comp;
+			this.threshold = threshold;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			T[] a = this.a;
+			Comparator<? super T> comp = this.comp;
+			int lo = this.from;
+			int hi = this.to;
+			int depth = this.depth;
+			QuicksortTask<T> forked = null;
+			while (hi - lo > this.threshold && depth > 0) {
+				T pivot = median(a[lo], a[(lo + hi) >>> 1], a[hi - 1], comp);
+				int lt = lo;
+				int gt = hi - 1;
+				int i = lo;
+				while (i <= gt) {
+					T x = a[i];
+					int c = comp.compare(x, pivot);
+					if (c < 0) {
+						a[i++] = a[lt];
+						a[lt++] = x;
+					} else if (c > 0) {
+						a[i] = a[gt];
+						a[gt--] = x;
+					} else {
+						i++;
+					}
+				}
+				depth--;
+				QuicksortTask<T> left = new QuicksortTask<T>(a, lo, lt, comp, this.threshold, depth);
+				left.fork();
+				left.next = forked;
+				forked = left;
+				lo = gt + 1;
+			}
+			Quicksort.sort(a, lo, hi, comp);
+			while (forked != null) {
+				forked.join();
+				forked = forked.next;
+			}
+		}
+
+		private static <T> T median(T x, T y, T z, Comparator<? super T> comp) {
+			if (comp.compare(x, y) > 0) {
+				T t = x;
+				x = y;
+				y = t;
+			}
+			if (comp.compare(y, z) <= 0) {
+				return y;
+			}
+			return comp.compare(x, z) >= 0 ? x : z;
+		}
+	}
+
+	/**
+	 * Sorts [from, to) so that the result ends up in dst if intoDst is set and
+	 * in src otherwise. The halves are sorted into the opposite array and
+	 * merged across, so data moves once per level with no copying back.
+	 */
+	private static class IntMergesortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] src;
+		private final int[] dst;
+		private final int from;
+		private final int to;
+		private final boolean intoDst;
+		private final int threshold;
+
+		IntMergesortTask(int[] src, int[] dst, int from, int to, boolean intoDst, int threshold) {
+			this.src = src;
+			this.dst = dst;
+			this.from = from;
+			this.to = to;
+			this.intoDst = intoDst;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.threshold) {
+				Quicksort.sort(this.src, this.from, this.to);
+				if (this.intoDst) {
+					System.arraycopy(this.src, this.from, this.dst, this.from, this.to - this.from);
+				}
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(new IntMergesortTask(this.src, this.dst, this.from, mid, !this.intoDst, this.threshold),
+					new IntMergesortTask(this.src, this.dst, mid, this.to, !this.intoDst, this.threshold));
+			int[] runs = this.intoDst ? this.src : this.dst;
+			int[] out = this.intoDst ? this.dst : this.src;
+			new IntMergeTask(runs, this.from, mid, mid, this.to, out, this.from, this.threshold).compute();
+		}
+	}
+
+	/**
+	 * Merges two sorted runs of in into out. Large merges split the longer
+	 * run at its middle element, find that element's position in the other
+	 * run by binary search, and merge the two halves in parallel.
+	 */
+	private static class IntMergeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] in;
+		private final int lo1;
+		private final int hi1;
+		private final int lo2;
+		private final int hi2;
+		private final int[] out;
+		private final int outFrom;
+		private final int threshold;
+
+		IntMergeTask(int[] in, int lo1, int hi1, int lo2, int hi2, int[] out, int outFrom, int threshold) {
+			this.in = in;
+			this.lo1 = lo1;
+			this.hi1 = hi1;
+			this.lo2 = lo2;
+			this.hi2 = hi2;
+			this.out = out;
+			this.outFrom = outFrom;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			int[] in = this.in;
+			int lo1 = this.lo1;
+			int hi1 = this.hi1;
+			int lo2 = this.lo2;
+			int hi2 = this.hi2;
+			if ((hi1 - lo1) + (hi2 - lo2) <= this.threshold) {
+				int k = this.outFrom;
+				while (lo1 < hi1 && lo2 < hi2) {
+					this.out[k++] = in[lo1] <= in[lo2] ? in[lo1++] : in[lo2++];
+				}
+				System.arraycopy(in, lo1, this.out, k, hi1 - lo1);
+				System.arraycopy(in, lo2, this.out, k + hi1 - lo1, hi2 - lo2);
+				return;
+			}
+			int m1;
+			int m2;
+			if (hi1 - lo1 >= hi2 - lo2) {
+				m1 = (lo1 + hi1) >>> 1;
+				m2 = lowerBound(in, lo2, hi2, in[m1]);
+			} else {
+				m2 = (lo2 + hi2) >>> 1;
+				m1 = upperBound(in, lo1, hi1, in[m2]);
+			}
+			int split = this.outFrom + (m1 - lo1) + (m2 - lo2);
+			invokeAll(new IntMergeTask(in, lo1, m1, lo2, m2, this.out, this.outFrom, this.threshold),
+					new IntMergeTask(in, m1, hi1, m2, hi2, this.out, split, this.threshold));
+		}
+
+		// First index in [lo, hi) whose element is >= key.
+		private static int lowerBound(int[] a, int lo, int hi, int key) {
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] < key) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+
+		// First index in [lo, hi) whose element is > key.
+		private static int upperBound(int[] a, int lo, int hi, int key) {
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (a[mid] <= key) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+
+	private static class MergesortTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] src;
+		private final T[] dst;
+		private final int from;
+		private final int to;
+		private final boolean intoDst;
+		private final Comparator<? super T> comp;
+		private final int threshold;
+
+		MergesortTask(T[] src, T[] dst, int from, int to, boolean intoDst, Comparator<? super T> comp,
+				int threshold) {
+			this.src = src;
+			this.dst = dst;
+			this.from = from;
+			this.to = to;
+			this.intoDst = intoDst;
+			this.comp = comp;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.threshold) {
+				// Arrays.sort is stable for objects, which keeps the whole sort
+				// stable.
+				Arrays.sort(this.src, this.from, this.to, this.comp);
+				if (this.intoDst) {
+					System.arraycopy(this.src, this.from, this.dst, this.from, this.to - this.from);
+				}
+				return;
+			}
+			int mid = (this.from + this.to) >>> 1;
+			invokeAll(
+					new MergesortTask<T>(this.src, this.dst, this.from, mid, !this.intoDst, this.comp,
+							this.threshold),
+					new MergesortTask<T>(this.src, this.dst, mid, this.to, !this.intoDst, this.comp,
+							this.threshold));
+			T[] runs = this.intoDst ? this.src : this.dst;
+			T[] out = this.intoDst ? this.dst : this.src;
+			new MergeTask<T>(runs, this.from, mid, mid, this.to, out, this.from, this.comp, this.threshold)
+					.compute();
+		}
+	}
+
+	// Stable: ties are taken from the first run, and the split points keep
+	// equal elements of the first run ahead of those of the second.
+	private static class MergeTask<T> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final T[] in;
+		private final int lo1;
+		private final int hi1;
+		private final int lo2;
+		private final int hi2;
+		private final T[] out;
+		private final int outFrom;
+		private final Comparator<? super T> comp;
+		private final int threshold;
+
+		MergeTask(T[] in, int lo1, int hi1, int lo2, int hi2, T[] out, int outFrom, Comparator<? super T> comp,
+				int threshold) {
+			this.in = in;
+			this.lo1 = lo1;
+			this.hi1 = hi1;
+			this.lo2 = lo2;
+			this.hi2 = hi2;
+			this.out = out;
+			this.outFrom = outFrom;
+			this.comp = comp;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			T[] in = this.in;
+			int lo1 = this.lo1;
+			int hi1 = this.hi1;
+			int lo2 = this.lo2;
+			int hi2 = this.hi2;
+			if ((hi1 - lo1) + (hi2 - lo2) <= this.threshold) {
+				int k = this.outFrom;
+				while (lo1 < hi1 && lo2 < hi2) {
+					this.out[k++] = this.comp.compare(in[lo1], in[lo2]) <= 0 ? in[lo1++] : in[lo2++];
+				}
+				System.arraycopy(in, lo1, this.out, k, hi1 - lo1);
+				System.arraycopy(in, lo2, this.out, k + hi1 - lo1, hi2 - lo2);
+				return;
+			}
+			int m1;
+			int m2;
+			if (hi1 - lo1 >= hi2 - lo2) {
+				m1 = (lo1 + hi1) >>> 1;
+				m2 = bound(in, lo2, hi2, in[m1], false);
+			} else {
+				m2 = (lo2 + hi2) >>> 1;
+				m1 = bound(in, lo1, hi1, in[m2], true);
+			}
+			int split = this.outFrom + (m1 - lo1) + (m2 - lo2);
+			invokeAll(new MergeTask<T>(in, lo1, m1, lo2, m2, this.out, this.outFrom, this.comp, this.threshold),
+					new MergeTask<T>(in, m1, hi1, m2, hi2, this.out, split, this.comp, this.threshold));
+		}
+
+		// First index in [lo, hi) whose element is > key if upper is set, or
+		// >= key otherwise.
+		private int bound(T[] a, int lo, int hi, T key, boolean upper) {
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				int c = this.comp.compare(a[mid], key);
+				if (c < 0 || (upper && c == 0)) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+import java.util.SplittableRandom;
+
+/**
+ * Measures how much order an int[] already has, to explain why the
+ * adaptive sorts do well or badly on it.
+ *
+ * @author Sam Stieby
+ */
+public final class Presortedness {
+
+	private Presortedness() {
+	}
+
+	/**
+	 * Returns the number of maximal non-descending runs in a: 1 for sorted
+	 * input, n for strictly descending input.
+	 */
+	public static int runs(int[] a) {
+		int runs = a.length == 0 ? 0 : 1;
+		for (int i = 1; i < a.length; i++) {
+			if (a[i] < a[i - 1]) {
+				runs++;
+			}
+		}
+		return runs;
+	}
+
+	/**
+	 * Estimates the fraction of pairs i < j with a[i] > a[j] from the given
+	 * number of random pairs: 0 for sorted input, about 0.5 for random input
+	 * and 1 for strictly descending input.
+	 */
+	public static double inversionFraction(int[] a, int samples, long seed) {
+		if (a.length < 2 || samples <= 0) {
+			return 0;
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		int inverted = 0;
+		for (int s = 0; s < samples; s++) {
+			int i = random.nextInt(a.length);
+			int j = random.nextInt(a.length);
+			if (i != j && a[Math.min(i, j)] > a[Math.max(i, j)]) {
+				inverted++;
+			}
+		}
+		// Pairs with i == j can never be inverted; scale them back out.
+		return inverted / (samples * (1 - 1.0 / a.length));
+	}
+
+	/**
+	 * Estimates the number of inversions from inversionFraction.
+	 */
+	public static double inversions(int[] a, int samples, long seed) {
+		return inversionFraction(a, samples, seed) * a.length * (a.length - 1.0) / 2;
+	}
+}
@@ -0,0 +1,961 @@
+import java.util.Comparator;
+
+/**
+ * A pattern-defeating quicksort (pdqsort) for int[], long[] and object
+ * arrays. It is not stable.
+ *
+ * On top of a plain quicksort it
+ * <ul>
+ * <li>picks the pivot as the median of three, or Tukey's ninther for ranges
+ * over 128 elements,</li>
+ * <li>partitions primitives with BlockQuicksort's branch-free scheme, so
+ * random data causes few branch mispredictions,</li>
+ * <li>notices when a partition moved nothing and finishes nearly sorted
+ * ranges with a bounded insertion sort,</li>
+ * <li>groups runs of elements equal to the previous pivot in linear
+ * time,</li>
+ * <li>insertion sorts ranges under 24 elements, and</li>
+ * <li>shuffles a few elements after each badly unbalanced partition and,
+ * after log n of those, falls back to HeapSort, so the worst case is
+ * O(n log n).</li>
+ * </ul>
+ *
+ * @author Sam Stieby
+ */
+public final class Quicksort {
+
+	private static final int INSERTION_SORT_THRESHOLD = 24;
+	private static final int NINTHER_THRESHOLD = 128;
+	private static final int PARTIAL_INSERTION_SORT_LIMIT = 8;
+	private static final int BLOCK_SIZE = 64;
+
+	private Quicksort() {
+	}
+
+	public static void sort(int[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 */
+	public static void sort(int[] a, int from, int to) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		int[] offsetsL = new int[BLOCK_SIZE];
+		int[] offsetsR = new int[BLOCK_SIZE];
+		sortLoop(a, from, to, log2(to - from), true, offsetsL, offsetsR);
+	}
+
+	private static void sortLoop(int[] a, int begin, int end, int badAllowed, boolean leftmost, int[] offsetsL,
+			int[] offsetsR) {
+		while (true) {
+			int size = end - begin;
+			if (size < INSERTION_SORT_THRESHOLD) {
+				if (leftmost) {
+					insertionSort(a, begin, end);
+				} else {
+					unguardedInsertionSort(a, begin, end);
+				}
+				return;
+			}
+
+			choosePivot(a, begin, end);
+
+			// If the element before this range equals the pivot, everything
+			// here is at least the pivot. Put the elements equal to it on the
+			// left and carry on with the rest, which handles heavy duplication
+			// in linear time.
+			if (!leftmost && a[begin - 1] >= a[begin]) {
+				begin = partitionLeft(a, begin, end) + 1;
+				continue;
+			}
+
+			int result = partitionRight(a, begin, end, offsetsL, offsetsR);
+			boolean alreadyPartitioned = result < 0;
+			int pivotPos = alreadyPartitioned ? ~result : result;
+
+			int leftSize = pivotPos - begin;
+			int rightSize = end - (pivotPos + 1);
+			if (leftSize < size / 8 || rightSize < size / 8) {
+				if (--badAllowed == 0) {
+					HeapSort.sort(a, begin, end);
+					return;
+				}
+				breakPatterns(a, begin, pivotPos, end);
+			} else if (alreadyPartitioned && partialInsertionSort(a, begin, pivotPos)
+					&& partialInsertionSort(a, pivotPos + 1, end)) {
+				// The range was already partitioned and both halves were nearly
+				// sorted, so it is done.
+				return;
+			}
+
+			sortLoop(a, begin, pivotPos, badAllowed, leftmost, offsetsL, offsetsR);
+			begin = pivotPos + 1;
+			leftmost = false;
+		}
+	}
+
+	// Moves the pivot to a[begin]: the median of three for small ranges, and
+	// Tukey's ninther (median of three medians) for large ones. Also leaves
+	// a[end - 1] >= the pivot, which the partition scans use as a sentinel.
+	private static void choosePivot(int[] a, int begin, int end) {
+		int size = end - begin;
+		int half = begin + size / 2;
+		if (size > NINTHER_THRESHOLD) {
+			sort3(a, begin, half, end - 1);
+			sort3(a, begin + 1, half - 1, end - 2);
+			sort3(a, begin + 2, half + 1, end - 3);
+			sort3(a, half - 1, half, half + 1);
+			swap(a, begin, half);
+		} else {
+			sort3(a, half, begin, end - 1);
+		}
+	}
+
+	// After a badly unbalanced partition, shuffle a few elements of each side
+	// so that an adversarial or periodic pattern does not repeat.
+	private static void breakPatterns(int[] a, int begin, int pivotPos, int end) {
+		int leftSize = pivotPos - begin;
+		int rightSize = end - (pivotPos + 1);
+		if (leftSize >= INSERTION_SORT_THRESHOLD) {
+			swap(a, begin, begin + leftSize / 4);
+			swap(a, pivotPos - 1, pivotPos - leftSize / 4);
+			if (leftSize > NINTHER_THRESHOLD) {
+				swap(a, begin + 1, begin + (leftSize / 4 + 1));
+				swap(a, begin + 2, begin + (leftSize / 4 + 2));
+				swap(a, pivotPos - 2, pivotPos - (leftSize / 4 + 1));
+				swap(a, pivotPos - 3, pivotPos - (leftSize / 4 + 2));
+			}
+		}
+		if (rightSize >= INSERTION_SORT_THRESHOLD) {
+			swap(a, pivotPos + 1, pivotPos + (1 + rightSize / 4));
+			swap(a, end - 1, end - rightSize / 4);
+			if (rightSize > NINTHER_THRESHOLD) {
+				swap(a, pivotPos + 2, pivotPos + (2 + rightSize / 4));
+				swap(a, pivotPos + 3, pivotPos + (3 + rightSize / 4));
+				swap(a, end - 2, end - (1 + rightSize / 4));
+				swap(a, end - 3, end - (2 + rightSize / 4));
+			}
+		}
+	}
+
+	// Partitions a[begin, end) around the pivot at a[begin] into < pivot and
+	// >= pivot, using BlockQuicksort's branch-free scheme: each side records
+	// the offsets of misplaced elements for a whole block without branching
+	// on the comparison, and the recorded elements are then swapped in bulk.
+	// Returns the pivot's final index, or its complement if no element had to
+	// move.
+	private static int partitionRight(int[] a, int begin, int end, int[] offsetsL, int[] offsetsR) {
+		int pivot = a[begin];
+		int first = begin;
+		int last = end;
+
+		// Skip the elements already on the correct sides. a[end - 1] >= pivot
+		// bounds the first scan; the second only needs a bound when the first
+		// one did not move.
+		while (a[++first] < pivot) {
+		}
+		if (first - 1 == begin) {
+			while (first < last && !(a[--last] < pivot)) {
+			}
+		} else {
+			while (!(a[--last] < pivot)) {
+			}
+		}
+
+		boolean alreadyPartitioned = first >= last;
+		if (!alreadyPartitioned) {
+			swap(a, first, last);
+			first++;
+
+			int numL = 0;
+			int numR = 0;
+			int startL = 0;
+			int startR = 0;
+			while (last - first > 2 * BLOCK_SIZE) {
+				if (numL == 0) {
+					startL = 0;
+					for (int i = 0, it = first; i < BLOCK_SIZE; i++, it++) {
+						offsetsL[numL] = i;
+						numL += a[it] >= pivot ? 1 : 0;
+					}
+				}
+				if (numR == 0) {
+					startR = 0;
+					for (int i = 0, it = last; i < BLOCK_SIZE; i++) {
+						offsetsR[numR] = i + 1;
+						numR += a[--it] < pivot ? 1 : 0;
+					}
+				}
+				int num = Math.min(numL, numR);
+				swapOffsets(a, first, last, offsetsL, startL, offsetsR, startR, num, numL == numR);
+				numL -= num;
+				numR -= num;
+				startL += num;
+				startR += num;
+				if (numL == 0) {
+					first += BLOCK_SIZE;
+				}
+				if (numR == 0) {
+					last -= BLOCK_SIZE;
+				}
+			}
+
+			// Fewer than two blocks remain; split them between the sides.
+			int leftSize;
+			int rightSize;
+			int unknownLeft = (last - first) - ((numR != 0 || numL != 0) ? BLOCK_SIZE : 0);
+			if (numR != 0) {
+				leftSize = unknownLeft;
+				rightSize = BLOCK_SIZE;
+			} else if (numL != 0) {
+				leftSize = BLOCK_SIZE;
+				rightSize = unknownLeft;
+			} else {
+				leftSize = unknownLeft / 2;
+				rightSize = unknownLeft - leftSize;
+			}
+			if (numL == 0) {
+				startL = 0;
+				for (int i = 0, it = first; i < leftSize; i++, it++) {
+					offsetsL[numL] = i;
+					numL += a[it] >= pivot ? 1 : 0;
+				}
+			}
+			if (numR == 0) {
+				startR = 0;
+				for (int i = 0, it = last; i < rightSize; i++) {
+					offsetsR[numR] = i + 1;
+					numR += a[--it] < pivot ? 1 : 0;
+				}
+			}
+			int num = Math.min(numL, numR);
+			swapOffsets(a, first, last, offsetsL, startL, offsetsR, startR, num, numL == numR);
+			numL -= num;
+			numR -= num;
+			startL += num;
+			startR += num;
+			if (numL == 0) {
+				first += leftSize;
+			}
+			if (numR == 0) {
+				last -= rightSize;
+			}
+
+			// At most one side still has misplaced elements; move them across.
+			if (numL != 0) {
+				while (numL-- > 0) {
+					swap(a, first + offsetsL[startL + numL], --last);
+				}
+				first = last;
+			}
+			if (numR != 0) {
+				while (numR-- > 0) {
+					swap(a, last - offsetsR[startR + numR], first);
+					first++;
+				}
+				last = first;
+			}
+		}
+
+		int pivotPos = first - 1;
+		a[begin] = a[pivotPos];
+		a[pivotPos] = pivot;
+		return alreadyPartitioned ? ~pivotPos : pivotPos;
+	}
+
+	// Swaps num pairs of recorded elements. When the counts differ the swaps
+	// are chained through one temporary instead, which halves the writes.
+	private static void swapOffsets(int[] a, int first, int last, int[] offsetsL, int startL, int[] offsetsR,
+			int startR, int num, boolean useSwaps) {
+		if (useSwaps) {
+			for (int i = 0; i < num; i++) {
+				swap(a, first + offsetsL[startL + i], last - offsetsR[startR + i]);
+			}
+		} else if (num > 0) {
+			int l = first + offsetsL[startL];
+			int r = last - offsetsR[startR];
+			int tmp = a[l];
+			a[l] = a[r];
+			for (int i = 1; i < num; i++) {
+				l = first + offsetsL[startL + i];
+				a[r] = a[l];
+				r = last - offsetsR[startR + i];
+				a[l] = a[r];
+			}
+			a[r] = tmp;
+		}
+	}
+
+	// Partitions a[begin, end) into <= pivot and > pivot. Used when the pivot
+	// equals the element before the range, so the left side is all equal to
+	// it. Returns the pivot's final index.
+	private static int partitionLeft(int[] a, int begin, int end) {
+		int pivot = a[begin];
+		int first = begin;
+		int last = end;
+		while (pivot < a[--last]) {
+		}
+		if (last + 1 == end) {
+			while (first < last && !(pivot < a[++first])) {
+			}
+		} else {
+			while (!(pivot < a[++first])) {
+			}
+		}
+		while (first < last) {
+			swap(a, first, last);
+			while (pivot < a[--last]) {
+			}
+			while (!(pivot < a[++first])) {
+			}
+		}
+		int pivotPos = last;
+		a[begin] = a[pivotPos];
+		a[pivotPos] = pivot;
+		return pivotPos;
+	}
+
+	private static void insertionSort(int[] a, int begin, int end) {
+		for (int cur = begin + 1; cur < end; cur++) {
+			int tmp = a[cur];
+			int sift = cur;
+			while (sift > begin && tmp < a[sift - 1]) {
+				a[sift] = a[sift - 1];
+				sift--;
+			}
+			a[sift] = tmp;
+		}
+	}
+
+	// Insertion sort without the lower bound check. Only valid when
+	// a[begin - 1] is no larger than anything in the range.
+	private static void unguardedInsertionSort(int[] a, int begin, int end) {
+		for (int cur = begin + 1; cur < end; cur++) {
+			int tmp = a[cur];
+			int sift = cur;
+			while (tmp < a[sift - 1]) {
+				a[sift] = a[sift - 1];
+				sift--;
+			}
+			a[sift] = tmp;
+		}
+	}
+
+	// Insertion sort that gives up, returning false, once it has moved more
+	// than PARTIAL_INSERTION_SORT_LIMIT elements.
+	private static boolean partialInsertionSort(int[] a, int begin, int end) {
+		int moved = 0;
+		for (int cur = begin + 1; cur < end; cur++) {
+			int tmp = a[cur];
+			if (tmp < a[cur - 1]) {
+				int sift = cur;
+				do {
+					a[sift] = a[sift - 1];
+					sift--;
+				} while (sift > begin && tmp < a[sift - 1]);
+				a[sift] = tmp;
+				moved += cur - sift;
+			}
+			if (moved > PARTIAL_INSERTION_SORT_LIMIT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void sort2(int[] a, int i, int j) {
+		if (a[j] < a[i]) {
+			swap(a, i, j);
+		}
+	}
+
+	// Sorts a[i], a[j], a[k] so the median ends up at j.
+	private static void sort3(int[] a, int i, int j, int k) {
+		sort2(a, i, j);
+		sort2(a, j, k);
+		sort2(a, i, j);
+	}
+
+	private static void swap(int[] a, int i, int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	// The long[] versions below mirror the int[] ones line for line.
+
+	public static void sort(long[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 */
+	public static void sort(long[] a, int from, int to) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		int[] offsetsL = new int[BLOCK_SIZE];
+		int[] offsetsR = new int[BLOCK_SIZE];
+		sortLoop(a, from, to, log2(to - from), true, offsetsL, offsetsR);
+	}
+
+	private static void sortLoop(long[] a, int begin, int end, int badAllowed, boolean leftmost, int[] offsetsL,
+			int[] offsetsR) {
+		while (true) {
+			int size = end - begin;
+			if (size < INSERTION_SORT_THRESHOLD) {
+				if (leftmost) {
+					insertionSort(a, begin, end);
+				} else {
+					unguardedInsertionSort(a, begin, end);
+				}
+				return;
+			}
+
+			choosePivot(a, begin, end);
+
+			// If the element before this range equals the pivot, everything
+			// here is at least the pivot. Put the elements equal to it on the
+			// left and carry on with the rest, which handles heavy duplication
+			// in linear time.
+			if (!leftmost && a[begin - 1] >= a[begin]) {
+				begin = partitionLeft(a, begin, end) + 1;
+				continue;
+			}
+
+			int result = partitionRight(a, begin, end, offsetsL, offsetsR);
+			boolean alreadyPartitioned = result < 0;
+			int pivotPos = alreadyPartitioned ? ~result : result;
+
+			int leftSize = pivotPos - begin;
+			int rightSize = end - (pivotPos + 1);
+			if (leftSize < size / 8 || rightSize < size / 8) {
+				if (--badAllowed == 0) {
+					HeapSort.sort(a, begin, end);
+					return;
+				}
+				breakPatterns(a, begin, pivotPos, end);
+			} else if (alreadyPartitioned && partialInsertionSort(a, begin, pivotPos)
+					&& partialInsertionSort(a, pivotPos + 1, end)) {
+				// The range was already partitioned and both halves were nearly
+				// sorted, so it is done.
+				return;
+			}
+
+			sortLoop(a, begin, pivotPos, badAllowed, leftmost, offsetsL, offsetsR);
+			begin = pivotPos + 1;
+			leftmost = false;
+		}
+	}
+
+	private static void choosePivot(long[] a, int begin, int end) {
+		int size = end - begin;
+		int half = begin + size / 2;
+		if (size > NINTHER_THRESHOLD) {
+			sort3(a, begin, half, end - 1);
+			sort3(a, begin + 1, half - 1, end - 2);
+			sort3(a, begin + 2, half + 1, end - 3);
+			sort3(a, half - 1, half, half + 1);
+			swap(a, begin, half);
+		} else {
+			sort3(a, half, begin, end - 1);
+		}
+	}
+
+	private static void breakPatterns(long[] a, int begin, int pivotPos, int end) {
+		int leftSize = pivotPos - begin;
+		int rightSize = end - (pivotPos + 1);
+		if (leftSize >= INSERTION_SORT_THRESHOLD) {
+			swap(a, begin, begin + leftSize / 4);
+			swap(a, pivotPos - 1, pivotPos - leftSize / 4);
+			if (leftSize > NINTHER_THRESHOLD) {
+				swap(a, begin + 1, begin + (leftSize / 4 + 1));
+				swap(a, begin + 2, begin + (leftSize / 4 + 2));
+				swap(a, pivotPos - 2, pivotPos - (leftSize / 4 + 1));
+				swap(a, pivotPos - 3, pivotPos - (leftSize / 4 + 2));
+			}
+		}
+		if (rightSize >= INSERTION_SORT_THRESHOLD) {
+			swap(a, pivotPos + 1, pivotPos + (1 + rightSize / 4));
+			swap(a, end - 1, end - rightSize / 4);
+			if (rightSize > NINTHER_THRESHOLD) {
+				swap(a, pivotPos + 2, pivotPos + (2 + rightSize / 4));
+				swap(a, pivotPos + 3, pivotPos + (3 + rightSize / 4));
+				swap(a, end - 2, end - (1 + rightSize / 4));
+				swap(a, end - 3, end - (2 + rightSize / 4));
+			}
+		}
+	}
+
+	private static int partitionRight(long[] a, int begin, int end, int[] offsetsL, int[] offsetsR) {
+		long pivot = a[begin];
+		int first = begin;
+		int last = end;
+
+		// Skip the elements already on the correct sides. a[end - 1] >= pivot
+		// bounds the first scan; the second only needs a bound when the first
+		// one did not move.
+		while (a[++first] < pivot) {
+		}
+		if (first - 1 == begin) {
+			while (first < last && !(a[--last] < pivot)) {
+			}
+		} else {
+			while (!(a[--last] < pivot)) {
+			}
+		}
+
+		boolean alreadyPartitioned = first >= last;
+		if (!alreadyPartitioned) {
+			swap(a, first, last);
+			first++;
+
+			int numL = 0;
+			int numR = 0;
+			int startL = 0;
+			int startR = 0;
+			while (last - first > 2 * BLOCK_SIZE) {
+				if (numL == 0) {
+					startL = 0;
+					for (int i = 0, it = first; i < BLOCK_SIZE; i++, it++) {
+						offsetsL[numL] = i;
+						numL += a[it] >= pivot ? 1 : 0;
+					}
+				}
+				if (numR == 0) {
+					startR = 0;
+					for (int i = 0, it = last; i < BLOCK_SIZE; i++) {
+						offsetsR[numR] = i + 1;
+						numR += a[--it] < pivot ? 1 : 0;
+					}
+				}
+				int num = Math.min(numL, numR);
+				swapOffsets(a, first, last, offsetsL, startL, offsetsR, startR, num, numL == numR);
+				numL -= num;
+				numR -= num;
+				startL += num;
+				startR += num;
+				if (numL == 0) {
+					first += BLOCK_SIZE;
+				}
+				if (numR == 0) {
+					last -= BLOCK_SIZE;
+				}
+			}
+
+			// Fewer than two blocks remain; split them between the sides.
+			int leftSize;
+			int rightSize;
+			int unknownLeft = (last - first) - ((numR != 0 || numL != 0) ? BLOCK_SIZE : 0);
+			if (numR != 0) {
+				leftSize = unknownLeft;
+				rightSize = BLOCK_SIZE;
+			} else if (numL != 0) {
+				leftSize = BLOCK_SIZE;
+				rightSize = unknownLeft;
+			} else {
+				leftSize = unknownLeft / 2;
+				rightSize = unknownLeft - leftSize;
+			}
+			if (numL == 0) {
+				startL = 0;
+				for (int i = 0, it = first; i < leftSize; i++, it++) {
+					offsetsL[numL] = i;
+					numL += a[it] >= pivot ? 1 : 0;
+				}
+			}
+			if (numR == 0) {
+				startR = 0;
+				for (int i = 0, it = last; i < rightSize; i++) {
+					offsetsR[numR] = i + 1;
+					numR += a[--it] < pivot ? 1 : 0;
+				}
+			}
+			int num = Math.min(numL, numR);
+			swapOffsets(a, first, last, offsetsL, startL, offsetsR, startR, num, numL == numR);
+			numL -= num;
+			numR -= num;
+			startL += num;
+			startR += num;
+			if (numL == 0) {
+				first += leftSize;
+			}
+			if (numR == 0) {
+				last -= rightSize;
+			}
+
+			// At most one side still has misplaced elements; move them across.
+			if (numL != 0) {
+				while (numL-- > 0) {
+					swap(a, first + offsetsL[startL + numL], --last);
+				}
+				first = last;
+			}
+			if (numR != 0) {
+				while (numR-- > 0) {
+					swap(a, last - offsetsR[startR + numR], first);
+					first++;
+				}
+				last = first;
+			}
+		}
+
+		int pivotPos = first - 1;
+		a[begin] = a[pivotPos];
+		a[pivotPos] = pivot;
+		return alreadyPartitioned ? ~pivotPos : pivotPos;
+	}
+
+	private static void swapOffsets(long[] a, int first, int last, int[] offsetsL, int startL, int[] offsetsR,
+			int startR, int num, boolean useSwaps) {
+		if (useSwaps) {
+			for (int i = 0; i < num; i++) {
+				swap(a, first + offsetsL[startL + i], last - offsetsR[startR + i]);
+			}
+		} else if (num > 0) {
+			int l = first + offsetsL[startL];
+			int r = last - offsetsR[startR];
+			long tmp = a[l];
+			a[l] = a[r];
+			for (int i = 1; i < num; i++) {
+				l = first + offsetsL[startL + i];
+				a[r] = a[l];
+				r = last - offsetsR[startR + i];
+				a[l] = a[r];
+			}
+			a[r] = tmp;
+		}
+	}
+
+	private static int partitionLeft(long[] a, int begin, int end) {
+		long pivot = a[begin];
+		int first = begin;
+		int last = end;
+		while (pivot < a[--last]) {
+		}
+		if (last + 1 == end) {
+			while (first < last && !(pivot < a[++first])) {
+			}
+		} else {
+			while (!(pivot < a[++first])) {
+			}
+		}
+		while (first < last) {
+			swap(a, first, last);
+			while (pivot < a[--last]) {
+			}
+			while (!(pivot < a[++first])) {
+			}
+		}
+		int pivotPos = last;
+		a[begin] = a[pivotPos];
+		a[pivotPos] = pivot;
+		return pivotPos;
+	}
+
+	private static void insertionSort(long[] a, int begin, int end) {
+		for (int cur = begin + 1; cur < end; cur++) {
+			long tmp = a[cur];
+			int sift = cur;
+			while (sift > begin && tmp < a[sift - 1]) {
+				a[sift] = a[sift - 1];
+				sift--;
+			}
+			a[sift] = tmp;
+		}
+	}
+
+	private static void unguardedInsertionSort(long[] a, int begin, int end) {
+		for (int cur = begin + 1; cur < end; cur++) {
+			long tmp = a[cur];
+			int sift = cur;
+			while (tmp < a[sift - 1]) {
+				a[sift] = a[sift - 1];
+				sift--;
+			}
+			a[sift] = tmp;
+		}
+	}
+
+	private static boolean partialInsertionSort(long[] a, int begin, int end) {
+		int moved = 0;
+		for (int cur = begin + 1; cur < end; cur++) {
+			long tmp = a[cur];
+			if (tmp < a[cur - 1]) {
+				int sift = cur;
+				do {
+					a[sift] = a[sift - 1];
+					sift--;
+				} while (sift > begin && tmp < a[sift - 1]);
+				a[sift] = tmp;
+				moved += cur - sift;
+			}
+			if (moved > PARTIAL_INSERTION_SORT_LIMIT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void sort2(long[] a, int i, int j) {
+		if (a[j] < a[i]) {
+			swap(a, i, j);
+		}
+	}
+
+	private static void sort3(long[] a, int i, int j, int k) {
+		sort2(a, i, j);
+		sort2(a, j, k);
+		sort2(a, i, j);
+	}
+
+	private static void swap(long[] a, int i, int j) {
+		long t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	// The object versions below mirror the int[] ones, except that
+	// partitionRight uses the classic two-pointer scheme: a Comparator call is
+	// opaque to the JIT, so the branch-free block scheme would not pay off.
+
+	public static <T extends Comparable<? super T>> void sort(T[] a) {
+		sort(a, 0, a.length, null);
+	}
+
+	public static <T> void sort(T[] a, Comparator<? super T> comp) {
+		sort(a, 0, a.length, comp);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 *
+	 * @param comp the ordering, or null for the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(T[] a, int from, int to, Comparator<? super T> comp) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		if (comp == null) {
+			comp = (Comparator<? super T>) Comparator.naturalOrder();
+		}
+		sortLoop(a, from, to, log2(to - from), true, comp);
+	}
+
+	private static <T> void sortLoop(T[] a, int begin, int end, int badAllowed, boolean leftmost,
+			Comparator<? super T> comp) {
+		while (true) {
+			int size = end - begin;
+			if (size < INSERTION_SORT_THRESHOLD) {
+				if (leftmost) {
+					insertionSort(a, begin, end, comp);
+				} else {
+					unguardedInsertionSort(a, begin, end, comp);
+				}
+				return;
+			}
+
+			choosePivot(a, begin, end, comp);
+
+			// If the element before this range equals the pivot, everything
+			// here is at least the pivot. Put the elements equal to it on the
+			// left and carry on with the rest, which handles heavy duplication
+			// in linear time.
+			if (!leftmost && comp.compare(a[begin - 1], a[begin]) >= 0) {
+				begin = partitionLeft(a, begin, end, comp) + 1;
+				continue;
+			}
+
+			int result = partitionRight(a, begin, end, comp);
+			boolean alreadyPartitioned = result < 0;
+			int pivotPos = alreadyPartitioned ? ~result : result;
+
+			int leftSize = pivotPos - begin;
+			int rightSize = end - (pivotPos + 1);
+			if (leftSize < size / 8 || rightSize < size / 8) {
+				if (--badAllowed == 0) {
+					HeapSort.sort(a, begin, end, comp);
+					return;
+				}
+				breakPatterns(a, begin, pivotPos, end);
+			} else if (alreadyPartitioned && partialInsertionSort(a, begin, pivotPos, comp)
+					&& partialInsertionSort(a, pivotPos + 1, end, comp)) {
+				// The range was already partitioned and both halves were nearly
+				// sorted, so it is done.
+				return;
+			}
+
+			sortLoop(a, begin, pivotPos, badAllowed, leftmost, comp);
+			begin = pivotPos + 1;
+			leftmost = false;
+		}
+	}
+
+	private static <T> void choosePivot(T[] a, int begin, int end, Comparator<? super T> comp) {
+		int size = end - begin;
+		int half = begin + size / 2;
+		if (size > NINTHER_THRESHOLD) {
+			sort3(a, begin, half, end - 1, comp);
+			sort3(a, begin + 1, half - 1, end - 2, comp);
+			sort3(a, begin + 2, half + 1, end - 3, comp);
+			sort3(a, half - 1, half, half + 1, comp);
+			swap(a, begin, half);
+		} else {
+			sort3(a, half, begin, end - 1, comp);
+		}
+	}
+
+	private static <T> void breakPatterns(T[] a, int begin, int pivotPos, int end) {
+		int leftSize = pivotPos - begin;
+		int rightSize = end - (pivotPos + 1);
+		if (leftSize >= INSERTION_SORT_THRESHOLD) {
+			swap(a, begin, begin + leftSize / 4);
+			swap(a, pivotPos - 1, pivotPos - leftSize / 4);
+			if (leftSize > NINTHER_THRESHOLD) {
+				swap(a, begin + 1, begin + (leftSize / 4 + 1));
+				swap(a, begin + 2, begin + (leftSize / 4 + 2));
+				swap(a, pivotPos - 2, pivotPos - (leftSize / 4 + 1));
+				swap(a, pivotPos - 3, pivotPos - (leftSize / 4 + 2));
+			}
+		}
+		if (rightSize >= INSERTION_SORT_THRESHOLD) {
+			swap(a, pivotPos + 1, pivotPos + (1 + rightSize / 4));
+			swap(a, end - 1, end - rightSize / 4);
+			if (rightSize > NINTHER_THRESHOLD) {
+				swap(a, pivotPos + 2, pivotPos + (2 + rightSize / 4));
+				swap(a, pivotPos + 3, pivotPos + (3 + rightSize / 4));
+				swap(a, end - 2, end - (1 + rightSize / 4));
+				swap(a, end - 3, end - (2 + rightSize / 4));
+			}
+		}
+	}
+
+	private static <T> int partitionRight(T[] a, int begin, int end, Comparator<? super T> comp) {
+		T pivot = a[begin];
+		int first = begin;
+		int last = end;
+		while (comp.compare(a[++first], pivot) < 0) {
+		}
+		if (first - 1 == begin) {
+			while (first < last && comp.compare(a[--last], pivot) >= 0) {
+			}
+		} else {
+			while (comp.compare(a[--last], pivot) >= 0) {
+			}
+		}
+		boolean alreadyPartitioned = first >= last;
+		while (first < last) {
+			swap(a, first, last);
+			while (comp.compare(a[++first], pivot) < 0) {
+			}
+			while (comp.compare(a[--last], pivot) >= 0) {
+			}
+		}
+		int pivotPos = first - 1;
+		a[begin] = a[pivotPos];
+		a[pivotPos] = pivot;
+		return alreadyPartitioned ? ~pivotPos : pivotPos;
+	}
+
+	private static <T> int partitionLeft(T[] a, int begin, int end, Comparator<? super T> comp) {
+		T pivot = a[begin];
+		int first = begin;
+		int last = end;
+		while (comp.compare(pivot, a[--last]) < 0) {
+		}
+		if (last + 1 == end) {
+			while (first < last && comp.compare(pivot, a[++first]) >= 0) {
+			}
+		} else {
+			while (comp.compare(pivot, a[++first]) >= 0) {
+			}
+		}
+		while (first < last) {
+			swap(a, first, last);
+			while (comp.compare(pivot, a[--last]) < 0) {
+			}
+			while (comp.compare(pivot, a[++first]) >= 0) {
+			}
+		}
+		int pivotPos = last;
+		a[begin] = a[pivotPos];
+		a[pivotPos] = pivot;
+		return pivotPos;
+	}
+
+	private static <T> void insertionSort(T[] a, int begin, int end, Comparator<? super T> comp) {
+		for (int cur = begin + 1; cur < end; cur++) {
+			T tmp = a[cur];
+			int sift = cur;
+			while (sift > begin && comp.compare(tmp, a[sift - 1]) < 0) {
+				a[sift] = a[sift - 1];
+				sift--;
+			}
+			a[sift] = tmp;
+		}
+	}
+
+	private static <T> void unguardedInsertionSort(T[] a, int begin, int end, Comparator<? super T> comp) {
+		for (int cur = begin + 1; cur < end; cur++) {
+			T tmp = a[cur];
+			int sift = cur;
+			while (comp.compare(tmp, a[sift - 1]) < 0) {
+				a[sift] = a[sift - 1];
+				sift--;
+			}
+			a[sift] = tmp;
+		}
+	}
+
+	private static <T> boolean partialInsertionSort(T[] a, int begin, int end, Comparator<? super T> comp) {
+		int moved = 0;
+		for (int cur = begin + 1; cur < end; cur++) {
+			T tmp = a[cur];
+			if (comp.compare(tmp, a[cur - 1]) < 0) {
+				int sift = cur;
+				do {
+					a[sift] = a[sift - 1];
+					sift--;
+				} while (sift > begin && comp.compare(tmp, a[sift - 1]) < 0);
+				a[sift] = tmp;
+				moved += cur - sift;
+			}
+			if (moved > PARTIAL_INSERTION_SORT_LIMIT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static <T> void sort2(T[] a, int i, int j, Comparator<? super T> comp) {
+		if (comp.compare(a[j], a[i]) < 0) {
+			swap(a, i, j);
+		}
+	}
+
+	private static <T> void sort3(T[] a, int i, int j, int k, Comparator<? super T> comp) {
+		sort2(a, i, j, comp);
+		sort2(a, j, k, comp);
+		sort2(a, i, j, comp);
+	}
+
+	private static <T> void swap(T[] a, int i, int j) {
+		T t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	// Number of badly unbalanced partitions allowed before giving up on
+	// quicksort for a range of n elements.
+	private static int log2(int n) {
+		return 32 - Integer.numberOfLeadingZeros(n);
+	}
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A monotone priority queue for integer keys. Keys may never be smaller than
+ * the last key removed, which holds for timestamps, tick numbers and
+ * Dijkstra distances. Under that rule, insert is O(1) and deleteMin is
+ * O(log C) amortized, where C is the key range, and neither compares
+ * elements against each other.
+ *
+ * An entry sits in bucket b, where b is the index of the highest bit in
+ * which its key differs from the last removed key. deleteMin empties the
+ * lowest non-empty bucket into lower ones, relative to the new minimum.
+ * Since each entry can only move to a lower bucket, it moves at most 64
+ * times. Buckets are parallel key and value arrays, so no per-entry objects
+ * are allocated.
+ *
+ * @author Sam Stieby
+ */
+public class RadixHeap<V> {
+
+	private static final int BUCKETS = Long.SIZE + 1;
+	private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+	// Keys are stored with the sign bit flipped so that unsigned order, which
+	// the bit tricks rely on, matches signed order.
+	private final long[][] keys;
+	private final Object[][] values;
+	private final int[] sizes;
+	private long last;
+	private int size;
+
+	public RadixHeap() {
+		this.keys = new long[BUCKETS][];
+		this.values = new Object[BUCKETS][];
+		this.sizes = new int[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++) {
+			this.keys[b] = new long[INITIAL_BUCKET_CAPACITY];
+			this.values[b] = new Object[INITIAL_BUCKET_CAPACITY];
+		}
+		this.last = 0;
+		this.size = 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns the key of the most recently removed entry, the lower bound for
+	 * new keys.
+	 */
+	public long lastKey() {
+		return this.last ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if key is smaller than lastKey()
+	 */
+	public void insert(long key, V value) {
+		long u = key ^ Long.MIN_VALUE;
+		if (Long.compareUnsigned(u, this.last) < 0) {
+			throw new IllegalArgumentException("Key " + key + " is below the last removed key " + lastKey());
+		}
+		add(bucket(u), u, value);
+		this.size++;
+	}
+
+	/**
+	 * Returns the smallest key without removing it.
+	 *
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public long peekKey() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		refill();
+		return this.last ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * Removes the entry with the smallest key and returns its value. Ties come
+	 * out in no particular order. Use lastKey() for the removed entry's key.
+	 *
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public V deleteMin() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("Heap is empty");
+		}
+		refill();
+		int i = --this.sizes[0];
+		V value = (V) this.values[0][i];
+		this.values[0][i] = null;
+		this.size--;
+		return value;
+	}
+
+	private int bucket(long u) {
+		return Long.SIZE - Long.numberOfLeadingZeros(u ^ this.last);
+	}
+
+	// Makes bucket 0 non-empty by moving last up to the smallest key and
+	// redistributing the bucket that held it.
+	private void refill() {
+		if (this.sizes[0] > 0) {
+			return;
+		}
+		int b = 1;
+		while (this.sizes[b] == 0) {
+			b++;
+		}
+		long[] bucketKeys = this.keys[b];
+		Object[] bucketValues = this.values[b];
+		int n = this.sizes[b];
+		long min = bucketKeys[0];
+		for (int i = 1; i < n; i++) {
+			if (Long.compareUnsigned(bucketKeys[i], min) < 0) {
+				min = bucketKeys[i];
+			}
+		}
+		this.last = min;
+		this.sizes[b] = 0;
+		// Every key in bucket b now differs from last below bit b - 1, so none
+		// is added back to bucket b itself.
+		for (int i = 0; i < n; i++) {
+			add(bucket(bucketKeys[i]), bucketKeys[i], bucketValues[i]);
+			bucketValues[i] = null;
+		}
+	}
+
+	private void add(int b, long u, Object value) {
+		int n = this.sizes[b];
+		if (n == this.keys[b].length) {
+			this.keys[b] = Arrays.copyOf(this.keys[b], n * 2);
+			this.values[b] = Arrays.copyOf(this.values[b], n * 2);
+		}
+		this.keys[b][n] = u;
+		this.values[b][n] = value;
+		this.sizes[b] = n + 1;
+	}
+}
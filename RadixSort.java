@@ -0,0 +1,344 @@
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Radix sorts for int[], long[], int keys paired with int values, and
+ * objects with an int key.
+ *
+ * The LSD sorts look at 11-bit digits, so an int takes three passes and a
+ * long six. Before sorting they histogram every digit in a single read of
+ * the input, and skip any pass where all elements share a digit, which is
+ * common for small or clustered keys. They need a scratch array as large
+ * as the input; pass one in to reuse it across calls.
+ *
+ * The MSD sort works in place, one byte at a time (American flag sort), and
+ * finishes buckets under 64 elements with insertion sort.
+ *
+ * Keys are compared as signed values.
+ *
+ * @author Sam Stieby
+ */
+public final class RadixSort {
+
+	private static final int DIGIT_BITS = 11;
+	private static final int RADIX = 1 << DIGIT_BITS;
+	private static final int MASK = RADIX - 1;
+	private static final int INT_PASSES = (Integer.SIZE + DIGIT_BITS - 1) / DIGIT_BITS;
+	private static final int LONG_PASSES = (Long.SIZE + DIGIT_BITS - 1) / DIGIT_BITS;
+	private static final int MSD_INSERTION_SORT_THRESHOLD = 64;
+
+	private RadixSort() {
+	}
+
+	public static void lsd(int[] a) {
+		lsd(a, null);
+	}
+
+	/**
+	 * Sorts the array with an LSD radix sort.
+	 *
+	 * @param scratch a buffer at least as long as a, or null to allocate one
+	 */
+	public static void lsd(int[] a, int[] scratch) {
+		int n = a.length;
+		if (n < 2) {
+			return;
+		}
+		int[][] counts = new int[INT_PASSES][RADIX];
+		for (int i = 0; i < n; i++) {
+			// Flipping the sign bit makes unsigned digit order match signed
+			// order.
+			int key = a[i] ^ Integer.MIN_VALUE;
+			for (int p = 0; p < INT_PASSES; p++) {
+				counts[p][(key >>> (p * DIGIT_BITS)) & MASK]++;
+			}
+		}
+		int[] src = a;
+		int[] dst = null;
+		for (int p = 0; p < INT_PASSES; p++) {
+			int[] count = counts[p];
+			int shift = p * DIGIT_BITS;
+			if (isTrivial(count, (a[0] ^ Integer.MIN_VALUE) >>> shift & MASK, n)) {
+				continue;
+			}
+			if (dst == null) {
+				dst = scratch != null && scratch.length >= n ? scratch : new int[n];
+			}
+			toOffsets(count);
+			for (int i = 0; i < n; i++) {
+				int x = src[i];
+				dst[count[((x ^ Integer.MIN_VALUE) >>> shift) & MASK]++] = x;
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+		}
+		if (src != a) {
+			System.arraycopy(src, 0, a, 0, n);
+		}
+	}
+
+	/**
+	 * Sorts keys with a stable LSD radix sort, making the same moves in
+	 * values, so each value stays paired with its key. Equal keys keep their
+	 * original order.
+	 *
+	 * @param values an array at least as long as keys
+	 */
+	public static void lsdPairs(int[] keys, int[] values) {
+		int n = keys.length;
+		if (values.length < n) {
+			throw new IllegalArgumentException("values is shorter than keys: " + values.length + " < " + n);
+		}
+		if (n < 2) {
+			return;
+		}
+		int[][] counts = new int[INT_PASSES][RADIX];
+		for (int i = 0; i < n; i++) {
+			int key = keys[i] ^ Integer.MIN_VALUE;
+			for (int p = 0; p < INT_PASSES; p++) {
+				counts[p][(key >>> (p * DIGIT_BITS)) & MASK]++;
+			}
+		}
+		int[] src = keys;
+		int[] srcValues = values;
+		int[] dst = null;
+		int[] dstValues = null;
+		for (int p = 0; p < INT_PASSES; p++) {
+			int[] count = counts[p];
+			int shift = p * DIGIT_BITS;
+			if (isTrivial(count, (keys[0] ^ Integer.MIN_VALUE) >>> shift & MASK, n)) {
+				continue;
+			}
+			if (dst == null) {
+				dst = new int[n];
+				dstValues = new int[n];
+			}
+			toOffsets(count);
+			for (int i = 0; i < n; i++) {
+				int x = src[i];
+				int j = count[((x ^ Integer.MIN_VALUE) >>> shift) & MASK]++;
+				dst[j] = x;
+				dstValues[j] = srcValues[i];
+			}
+			int[] t = src;
+			src = dst;
+			dst = t;
+			t = srcValues;
+			srcValues = dstValues;
+			dstValues = t;
+		}
+		if (src != keys) {
+			System.arraycopy(src, 0, keys, 0, n);
+			System.arraycopy(srcValues, 0, values, 0, n);
+		}
+	}
+
+	public static void lsd(long[] a) {
+		lsd(a, null);
+	}
+
+	/**
+	 * Sorts the array with an LSD radix sort.
+	 *
+	 * @param scratch a buffer at least as long as a, or null to allocate one
+	 */
+	public static void lsd(long[] a, long[] scratch) {
+		lsd(a, 0, a.length, scratch);
+	}
+
+	/**
+	 * Sorts a[from, to) with an LSD radix sort.
+	 *
+	 * @param scratch a buffer of at least to - from elements, or null to
+	 *                allocate one
+	 */
+	public static void lsd(long[] a, int from, int to, long[] scratch) {
+		HeapSort.rangeCheck(a.length, from, to);
+		int n = to - from;
+		if (n < 2) {
+			return;
+		}
+		int[][] counts = new int[LONG_PASSES][RADIX];
+		for (int i = from; i < to; i++) {
+			long key = a[i] ^ Long.MIN_VALUE;
+			for (int p = 0; p < LONG_PASSES; p++) {
+				counts[p][(int) (key >>> (p * DIGIT_BITS)) & MASK]++;
+			}
+		}
+		// The range moves between a, at from, and the scratch array, at 0.
+		long[] src = a;
+		int srcFrom = from;
+		long[] dst = null;
+		int dstFrom = 0;
+		long first = a[from] ^ Long.MIN_VALUE;
+		for (int p = 0; p < LONG_PASSES; p++) {
+			int[] count = counts[p];
+			int shift = p * DIGIT_BITS;
+			if (isTrivial(count, (int) (first >>> shift) & MASK, n)) {
+				continue;
+			}
+			if (dst == null) {
+				dst = scratch != null && scratch.length >= n ? scratch : new long[n];
+			}
+			toOffsets(count);
+			for (int i = srcFrom, end = srcFrom + n; i < end; i++) {
+				long x = src[i];
+				dst[dstFrom + count[(int) ((x ^ Long.MIN_VALUE) >>> shift) & MASK]++] = x;
+			}
+			long[] t = src;
+			src = dst;
+			dst = t;
+			int f = srcFrom;
+			srcFrom = dstFrom;
+			dstFrom = f;
+		}
+		if (src != a) {
+			System.arraycopy(src, srcFrom, a, from, n);
+		}
+	}
+
+	public static <T> void sort(T[] a, ToIntFunction<? super T> key) {
+		sort(a, key, null);
+	}
+
+	/**
+	 * Sorts objects by an int key with a stable LSD radix sort. The key
+	 * function is called once per element to build the histograms, once more
+	 * on the first element, and once per element in every pass that is not
+	 * skipped, so it should be cheap, such as a field read.
+	 *
+	 * @param scratch a buffer at least as long as a, or null to allocate one
+	 */
+	public static <T> void sort(T[] a, ToIntFunction<? super T> key, T[] scratch) {
+		int n = a.length;
+		if (n < 2) {
+			return;
+		}
+		int[][] counts = new int[INT_PASSES][RADIX];
+		for (int i = 0; i < n; i++) {
+			int k = key.applyAsInt(a[i]) ^ Integer.MIN_VALUE;
+			for (int p = 0; p < INT_PASSES; p++) {
+				counts[p][(k >>> (p * DIGIT_BITS)) & MASK]++;
+			}
+		}
+		T[] src = a;
+		T[] dst = null;
+		int first = key.applyAsInt(a[0]) ^ Integer.MIN_VALUE;
+		for (int p = 0; p < INT_PASSES; p++) {
+			int[] count = counts[p];
+			int shift = p * DIGIT_BITS;
+			if (isTrivial(count, first >>> shift & MASK, n)) {
+				continue;
+			}
+			if (dst == null) {
+				dst = scratch != null && scratch.length >= n ? scratch : Arrays.copyOf(a, n);
+			}
+			toOffsets(count);
+			for (int i = 0; i < n; i++) {
+				T x = src[i];
+				dst[count[((key.applyAsInt(x) ^ Integer.MIN_VALUE) >>> shift) & MASK]++] = x;
+			}
+			T[] t = src;
+			src = dst;
+			dst = t;
+		}
+		if (src != a) {
+			System.arraycopy(src, 0, a, 0, n);
+		}
+	}
+
+	/**
+	 * Sorts the array in place with an MSD radix sort. The only allocation is
+	 * two 256-entry tables per byte of the key.
+	 */
+	public static void msd(int[] a) {
+		int levels = Integer.SIZE / Byte.SIZE;
+		msd(a, 0, a.length, levels - 1, new int[levels][256], new int[levels][256]);
+	}
+
+	// Sorts a[from, to) on the given byte (3 is the most significant) and the
+	// ones below it. Each level has its own tables, so a level's tables stay
+	// intact while it recurses into its buckets.
+	private static void msd(int[] a, int from, int to, int level, int[][] nexts, int[][] ends) {
+		if (to - from < MSD_INSERTION_SORT_THRESHOLD) {
+			insertionSort(a, from, to);
+			return;
+		}
+		int shift = level * Byte.SIZE;
+		int[] next = nexts[level];
+		int[] end = ends[level];
+		Arrays.fill(next, 0);
+		for (int i = from; i < to; i++) {
+			next[byteAt(a[i], shift)]++;
+		}
+		// Every element shares this byte, so go straight to the next one.
+		if (next[byteAt(a[from], shift)] == to - from) {
+			if (level > 0) {
+				msd(a, from, to, level - 1, nexts, ends);
+			}
+			return;
+		}
+		int sum = from;
+		for (int b = 0; b < 256; b++) {
+			int c = next[b];
+			next[b] = sum;
+			sum += c;
+			end[b] = sum;
+		}
+		// Cycle each misplaced element into its bucket.
+		for (int b = 0; b < 256; b++) {
+			while (next[b] < end[b]) {
+				int x = a[next[b]];
+				int d = byteAt(x, shift);
+				while (d != b) {
+					int t = a[next[d]];
+					a[next[d]++] = x;
+					x = t;
+					d = byteAt(x, shift);
+				}
+				a[next[b]++] = x;
+			}
+		}
+		if (level > 0) {
+			int start = from;
+			for (int b = 0; b < 256; b++) {
+				if (end[b] - start > 1) {
+					msd(a, start, end[b], level - 1, nexts, ends);
+				}
+				start = end[b];
+			}
+		}
+	}
+
+	private static int byteAt(int x, int shift) {
+		return ((x ^ Integer.MIN_VALUE) >>> shift) & 0xFF;
+	}
+
+	private static void insertionSort(int[] a, int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			int x = a[i];
+			int j = i;
+			while (j > from && a[j - 1] > x) {
+				a[j] = a[j - 1];
+				j--;
+			}
+			a[j] = x;
+		}
+	}
+
+	// A pass is trivial when one digit value holds every element.
+	private static boolean isTrivial(int[] count, int digit, int n) {
+		return count[digit] == n;
+	}
+
+	// Turns digit counts into starting offsets in place.
+	private static void toOffsets(int[] count) {
+		int sum = 0;
+		for (int d = 0; d < RADIX; d++) {
+			int c = count[d];
+			count[d] = sum;
+			sum += c;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Receives the events that the heaps and sorts can report: comparisons,
+ * element moves, array allocations and recursion depth. Pass
+ * {@link CountingSortMetrics} to gather them.
+ *
+ * The default, {@link #NONE}, does nothing. Once the JIT inlines its empty
+ * methods the calls, and the work of computing their arguments, disappear,
+ * so uninstrumented runs pay nothing.
+ *
+ * @author Sam Stieby
+ */
+public interface SortMetrics {
+
+	SortMetrics NONE = new SortMetrics() {
+		@Override
+		public void comparison() {
+		}
+
+		@Override
+		public void move(int count) {
+		}
+
+		@Override
+		public void allocation(long bytes) {
+		}
+
+		@Override
+		public void recursion(int depth) {
+		}
+	};
+
+	/**
+	 * Called once per element comparison.
+	 */
+	void comparison();
+
+	/**
+	 * Called when count elements are written into an array.
+	 */
+	void move(int count);
+
+	/**
+	 * Called when a new array of about the given size in bytes is allocated.
+	 */
+	void allocation(long bytes);
+
+	/**
+	 * Called on entry to a recursive call at the given depth, starting at 1.
+	 */
+	void recursion(int depth);
+}
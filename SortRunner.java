@@ -1,9 +1,21 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Random;
-import java.util.TreeSet;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * This program runs various sorts and gathers timing information on them.
@@ -11,9 +23,77 @@ import java.util.TreeSet;
  * @author <<Sam Stieby>> Created May 7, 2013.
  */
 public class SortRunner {
-	private static Random rand = new Random(); // uses a fixed seed for debugging. Remove the parameter later.
+	// Every workload is generated from this seed; run with -Dseed=n to change
+	// it.
+	private static final long SEED = Long.getLong("seed", 42);
+	private static final SplittableRandom rand = new SplittableRandom(SEED);
+	// Generated workloads are kept in this directory and read back on later
+	// runs; run with -Ddatasets= to generate them fresh every time instead.
+	private static final String DATASETS = System.getProperty("datasets", "datasets");
+	// Sorts that work in place may still allocate a few small fixed buffers,
+	// such as Quicksort's block offsets, and the first call into a class
+	// allocates a few tens of KB while it is loaded and profiled. Anything
+	// that grows with a million-element input is far above this.
+	private static final long ALLOCATION_FREE_BUDGET = 64 << 10;
+	private static final boolean FAIL_ON_ALLOCATION = Boolean.getBoolean("failOnAllocation");
+	// The fastest sort so far on the current array, recorded by
+	// displayResults, to check the choice Sorts makes against.
+	private static String fastestSort;
+	private static long fastestTime;
+	// Set by the "metrics" mode: count comparisons, moves and allocations for
+	// the sorts that can report them.
+	private static boolean collectMetrics = false;
 
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("heap-capacity")) {
+			runHeapCapacityBenchmark(parseSizes(args, new int[] { 1000000, 10000000, 100000000 }));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("dary")) {
+			runDaryHeapBenchmark(parseSizes(args, new int[] { 100000, 1000000, 10000000 }));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("concurrent")) {
+			runConcurrentHeapBenchmark(parseSizes(args, new int[] { 1000000 })[0]);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("external")) {
+			runExternalHeapBenchmark(parseSizes(args, new int[] { 1000000, 4000000, 16000000 }));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("radix-heap")) {
+			runRadixHeapBenchmark(parseSizes(args, new int[] { 1000000, 10000000 }));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("external-sort")) {
+			// external-sort [ints] [memory MB] [fan-in]
+			long count = args.length > 1 ? (long) Double.parseDouble(args[1]) : 1000000000L;
+			long memoryBytes = (args.length > 2 ? Long.parseLong(args[2]) : 256) << 20;
+			int fanIn = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+			runExternalSortBenchmark(count, memoryBytes, fanIn);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("parallel")) {
+			runParallelScalingBenchmark(parseSizes(args, new int[] { 10000000 })[0]);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("max-value")) {
+			runMaxValueSweep(parseSizes(args, new int[] { 1000000 })[0]);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("key-prefix")) {
+			runKeyPrefixBenchmark(parseSizes(args, new int[] { 1000000, 10000000, 100000000 }));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("metrics")) {
+			collectMetrics = true;
+		}
+
+		if (args.length > 0 && args[0].equals("workloads")) {
+			runWorkloadBenchmark(parseSizes(args, new int[] { 100000000 })[0]);
+			return;
+		}
+
 		// array size must be an int. You will need to use something much larger
 		int size = 1000000;
 
@@ -22,25 +102,18 @@ public class SortRunner {
 		// will have small likelihood of getting duplicates.
 		int maxValue = Integer.MAX_VALUE;
 
-		// Test 1: Array of random values.
-		System.out.println("Random Arrays");
-		int[] randomIntArray = getRandomIntArray(size, maxValue);
-		runAllSortsForOneArray(randomIntArray);
-
-		// Tests 2-4
-		// Generate the three other types of arrays (shuffled, almost sorted, almost
-		// reverse sorted)
-		// and run the sorts on those as well.
-		System.out.println("Shuffled Arrays");
-		int[] shuffledIntArray = getUniqueElementArray(size);
-		runAllSortsForOneArray(shuffledIntArray);
-		System.out.println("Almost Sorted Arrays");
-		int[] almostSortedArray = getAlmostSortedArray(size);
-		runAllSortsForOneArray(almostSortedArray);
-		System.out.println("Almost Reverse Sorted Arrays");
-		int[] almostReverseSortedArray = getAlmostReverseSortedArray(size);
-		runAllSortsForOneArray(almostReverseSortedArray);
-
+		// Run every sort over every workload: random values, a shuffled
+		// permutation, almost sorted and almost reverse sorted arrays, and the
+		// skewed and patterned distributions after them. maxValue applies to
+		// the random values; the cache only holds the default range.
+		for (Workload workload : Workload.values()) {
+			System.out.println(workload.title() + " Arrays");
+			int[] array = workload == Workload.RANDOM && maxValue != Integer.MAX_VALUE
+					? Workload.random(size, maxValue, SEED)
+					: getWorkload(workload, size);
+			printPresortedness(array);
+			runAllSortsForOneArray(array);
+		}
 	}
 
 
@@ -54,80 +127,740 @@ public class SortRunner {
 	private static void runAllSortsForOneArray(int[] array) {
 		long startTime, elapsedTime;
 		boolean isSorted = false;
+		CountingSortMetrics metrics;
+		AllocationProbe probe = new AllocationProbe();
 
 		int[] sortedIntsUsingDefaultSort = array.clone();
 		Integer[] sortedIntegersUsingDefaultSort = copyToIntegerArray(array);
 		Integer[] sortedIntegersUsingHeapSort = sortedIntegersUsingDefaultSort.clone();
-		Integer[] sortedIntegersUsingTreeSort = sortedIntegersUsingDefaultSort.clone();
+		Integer[] sortedIntegersUsingKeyPrefixSort = sortedIntegersUsingDefaultSort.clone();
+		int[] sortedIntsUsingTreeSort = array.clone();
 		int[] sortedIntsUsingQuickSort = array.clone();
-		
+		int[] sortedIntsUsingThreeWayQuickSort = array.clone();
+		int[] sortedIntsUsingPrimitiveHeapSort = array.clone();
+		int[] sortedIntsUsingRadixSort = array.clone();
+		int[] sortedIntsUsingMergeSort = array.clone();
+		int[] sortedIntsUsingSorts = array.clone();
 
 		int size = array.length;
+		fastestSort = null;
+		fastestTime = Long.MAX_VALUE;
 
 		// Mergesort
+		probe.start();
 		startTime = System.currentTimeMillis();
 		Arrays.sort(sortedIntsUsingDefaultSort);
 		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
 		isSorted = verifySort(sortedIntsUsingDefaultSort);
-		displayResults("int", "the default sort", elapsedTime, size, isSorted);
+		displayResults("int", "the default sort", elapsedTime, size, isSorted, null, probe);
 
 		// Timsort, a different type of Mergesort
+		metrics = newMetrics();
+		probe.start();
 		startTime = System.currentTimeMillis();
-		Arrays.sort(sortedIntegersUsingDefaultSort);
+		if (metrics == null) {
+			Arrays.sort(sortedIntegersUsingDefaultSort);
+		} else {
+			Arrays.sort(sortedIntegersUsingDefaultSort, metrics.counting(Comparator.<Integer>naturalOrder()));
+		}
 		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
 		isSorted = verifySort(sortedIntegersUsingDefaultSort);
-		displayResults("Integer", "the default sort", elapsedTime, size, isSorted);
+		displayResults("Integer", "the default sort", elapsedTime, size, isSorted, metrics, probe);
 
-		// TreeSet Sorting
-		TreeSet<Integer> set = new TreeSet<Integer>();
-		ArrayList<Integer> dupList = new ArrayList<Integer>();
+		// Key-prefix sort, which sorts the Integers' values packed with their
+		// indices and then moves each Integer once
+		probe.start();
 		startTime = System.currentTimeMillis();
-		for (int i = 0; i < size; i++) {
-			if (!set.add(sortedIntegersUsingTreeSort[i])) {
-				dupList.add(sortedIntegersUsingTreeSort[i]);
-			}
-		}
+		KeyPrefixSort.sortByIntKey(sortedIntegersUsingKeyPrefixSort, Integer::intValue);
 		elapsedTime = (System.currentTimeMillis() - startTime);
-		int inc = 0;
-		Iterator<Integer> it = set.iterator();
-		while (it.hasNext()) {
-			Integer n = it.next();
-			sortedIntegersUsingTreeSort[inc] = n;
-			inc++;
-			while (dupList.contains(n)) {
-				dupList.remove(n);
-				sortedIntegersUsingTreeSort[inc] = n;
-				inc++;
-			}
-		}
-		isSorted = verifySort(sortedIntegersUsingTreeSort);
-		displayResults("TreeSet", "the tree sort", elapsedTime, size, isSorted);
+		probe.stop();
+		isSorted = verifySort(sortedIntegersUsingKeyPrefixSort);
+		displayResults("Integer", "the key-prefix sort", elapsedTime, size, isSorted, null, probe);
+
+		// Tree sort: a red-black tree that counts duplicates per key
+		probe.start();
+		startTime = System.currentTimeMillis();
+		IntTreeMultiset.sort(sortedIntsUsingTreeSort);
+		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
+		isSorted = verifySort(sortedIntsUsingTreeSort);
+		displayResults("IntTreeMultiset", "the tree sort", elapsedTime, size, isSorted, null, probe);
 
 		// Quicksort sorting
+		probe.start();
 		startTime = System.currentTimeMillis();
 		Quicksort.sort(sortedIntsUsingQuickSort);
 		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
 		isSorted = verifySort(sortedIntsUsingQuickSort);
-		displayResults("QuickSort", "quicksort", elapsedTime, size, isSorted);
+		displayResults("QuickSort", "quicksort", elapsedTime, size, isSorted, null, probe);
+		checkAllocationFree("quicksort", probe);
+
+		// Three-way quicksort, which sets aside keys equal to the pivot
+		probe.start();
+		startTime = System.currentTimeMillis();
+		ThreeWayQuicksort.sort(sortedIntsUsingThreeWayQuickSort);
+		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
+		isSorted = verifySort(sortedIntsUsingThreeWayQuickSort);
+		displayResults("ThreeWayQuickSort", "three-way quicksort", elapsedTime, size, isSorted, null, probe);
 
 		// BinaryHeap sorting
+		metrics = newMetrics();
+		probe.start();
 		startTime = System.currentTimeMillis();
-		BinaryHeap.sort(sortedIntegersUsingHeapSort, Integer.class);
+		if (metrics == null) {
+			BinaryHeap.sort(sortedIntegersUsingHeapSort, Integer.class);
+		} else {
+			BinaryHeap.sort(sortedIntegersUsingHeapSort, Integer.class, metrics);
+		}
 		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
 		isSorted = verifySort(sortedIntegersUsingHeapSort);
-		displayResults("BinaryHeap", "the heapsort", elapsedTime, size, isSorted);
+		displayResults("BinaryHeap", "the heapsort", elapsedTime, size, isSorted, metrics, probe);
+
+		// IntBinaryHeap sorting, the same heapsort on unboxed ints
+		metrics = newMetrics();
+		probe.start();
+		startTime = System.currentTimeMillis();
+		if (metrics == null) {
+			IntBinaryHeap.sort(sortedIntsUsingPrimitiveHeapSort);
+		} else {
+			HeapSort.sort(sortedIntsUsingPrimitiveHeapSort, 0, size, metrics);
+		}
+		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
+		isSorted = verifySort(sortedIntsUsingPrimitiveHeapSort);
+		displayResults("IntBinaryHeap", "the primitive heapsort", elapsedTime, size, isSorted, metrics, probe);
+		checkAllocationFree("the primitive heapsort", probe);
+
+		// LSD radix sort, the only non-comparison sort here
+		probe.start();
+		startTime = System.currentTimeMillis();
+		RadixSort.lsd(sortedIntsUsingRadixSort);
+		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
+		isSorted = verifySort(sortedIntsUsingRadixSort);
+		displayResults("RadixSort", "the LSD radix sort", elapsedTime, size, isSorted, null, probe);
+
+		// Natural mergesort, which merges the runs already in the input
+		probe.start();
+		startTime = System.currentTimeMillis();
+		NaturalMergeSort.sort(sortedIntsUsingMergeSort);
+		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
+		isSorted = verifySort(sortedIntsUsingMergeSort);
+		displayResults("NaturalMergeSort", "the natural mergesort", elapsedTime, size, isSorted, null, probe);
+
+		// Sorts, which samples the array and picks one of the sorts above.
+		// Flag it when some other row beat it by a clear margin: either it
+		// picked the wrong engine or its sampling cost too much.
+		String fastestOther = fastestSort;
+		long fastestOtherTime = fastestTime;
+		probe.start();
+		startTime = System.currentTimeMillis();
+		Sorts.Decision decision = Sorts.sort(sortedIntsUsingSorts);
+		elapsedTime = (System.currentTimeMillis() - startTime);
+		probe.stop();
+		isSorted = verifySort(sortedIntsUsingSorts);
+		displayResults("int", "Sorts, which chose " + decision + ",", elapsedTime, size, isSorted, null, probe);
+		if (isSorted && fastestOther != null && elapsedTime > fastestOtherTime * 5 / 4 + 5) {
+			System.out.printf("    Sorts lost to %s, which took %d milliseconds\n", fastestOther, fastestOtherTime);
+		}
+
+	}
+
+	/**
+	 * Fills a BinaryHeap one insert at a time and then empties it with
+	 * deleteMin, reporting the average cost of each operation. With geometric
+	 * growth both should stay close to O(log n) per call as n grows.
+	 *
+	 * @param sizes heap sizes to try
+	 */
+	private static void runHeapCapacityBenchmark(int[] sizes) {
+		for (int size : sizes) {
+			int[] values = getWorkload(Workload.RANDOM, size);
+			BinaryHeap<Integer> heap = new BinaryHeap<Integer>(Integer.class);
+
+			long startTime = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				heap.insert(values[i]);
+			}
+			long insertTime = System.nanoTime() - startTime;
+			int peakCapacity = heap.capacity();
+
+			startTime = System.nanoTime();
+			Integer last = Integer.MIN_VALUE;
+			boolean isSorted = true;
+			for (int i = 0; i < size; i++) {
+				Integer n = heap.deleteMin();
+				if (n < last) {
+					isSorted = false;
+				}
+				last = n;
+			}
+			long deleteTime = System.nanoTime() - startTime;
+
+			System.out.printf("%.1e elements: insert %.1f ns/op, deleteMin %.1f ns/op, peak capacity %d, final capacity %d%s\n",
+					(double) size, (double) insertTime / size, (double) deleteTime / size, peakCapacity,
+					heap.capacity(), isSorted ? "" : " (OUT OF ORDER)");
+		}
+	}
+
+	/**
+	 * Times DaryHeap at several arities against BinaryHeap. The insert column
+	 * fills an empty heap with n random elements; the deleteMin column then
+	 * empties it. Pick a low arity for deleteMin-heavy loads and a high one for
+	 * insert-heavy loads where the columns disagree.
+	 *
+	 * @param sizes heap sizes to try
+	 */
+	private static void runDaryHeapBenchmark(int[] sizes) {
+		int[] arities = { 2, 4, 8, 16 };
+		for (int size : sizes) {
+			Integer[] values = copyToIntegerArray(getWorkload(Workload.RANDOM, size));
+			System.out.printf("%.1e elements\n", (double) size);
+
+			BinaryHeap<Integer> binaryHeap = new BinaryHeap<Integer>(Integer.class, size);
+			long startTime = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				binaryHeap.insert(values[i]);
+			}
+			long insertTime = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
+			for (int i = 0; i < size; i++) {
+				binaryHeap.deleteMin();
+			}
+			long deleteTime = System.nanoTime() - startTime;
+			System.out.printf("  BinaryHeap   insert %6.1f ns/op, deleteMin %6.1f ns/op\n",
+					(double) insertTime / size, (double) deleteTime / size);
+
+			for (int arity : arities) {
+				DaryHeap<Integer> heap = new DaryHeap<Integer>(arity, size, null);
+				startTime = System.nanoTime();
+				for (int i = 0; i < size; i++) {
+					heap.insert(values[i]);
+				}
+				insertTime = System.nanoTime() - startTime;
+				startTime = System.nanoTime();
+				Integer last = Integer.MIN_VALUE;
+				boolean isSorted = true;
+				for (int i = 0; i < size; i++) {
+					Integer n = heap.deleteMin();
+					if (n < last) {
+						isSorted = false;
+					}
+					last = n;
+				}
+				deleteTime = System.nanoTime() - startTime;
+				System.out.printf("  DaryHeap d=%-2d insert %6.1f ns/op, deleteMin %6.1f ns/op%s\n", arity,
+						(double) insertTime / size, (double) deleteTime / size, isSorted ? "" : " (OUT OF ORDER)");
+			}
+		}
+	}
 
+	/**
+	 * Measures the throughput of a mixed insert/deleteMin load at 1, 2, 4 ...
+	 * up to the number of cores, comparing ConcurrentHeap in both modes with
+	 * PriorityBlockingQueue, which guards one heap with a single lock.
+	 *
+	 * @param opsPerThread number of operations each thread performs
+	 */
+	private static void runConcurrentHeapBenchmark(int opsPerThread) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+			System.out.printf("%d threads\n", threads);
+
+			PriorityBlockingQueue<Integer> queue = new PriorityBlockingQueue<Integer>();
+			runConcurrentLoad("PriorityBlockingQueue", threads, opsPerThread, queue::offer, queue::poll);
+
+			ConcurrentHeap<Integer> relaxed = new ConcurrentHeap<Integer>(2 * threads, false, null);
+			runConcurrentLoad("ConcurrentHeap relaxed", threads, opsPerThread, relaxed::insert, relaxed::deleteMin);
+
+			ConcurrentHeap<Integer> strict = new ConcurrentHeap<Integer>(2 * threads, true, null);
+			runConcurrentLoad("ConcurrentHeap strict", threads, opsPerThread, strict::insert, strict::deleteMin);
+		}
+	}
+
+	private static void runConcurrentLoad(String name, int threads, int opsPerThread, Consumer<Integer> insert,
+			Supplier<Integer> deleteMin) {
+		// Start from a populated queue so deleteMin does real work.
+		for (int i = 0; i < opsPerThread; i++) {
+			insert.accept(rand.nextInt());
+		}
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				// Count down even if an operation throws, so the main thread
+				// does not wait forever.
+				try {
+					start.await();
+					for (int i = 0; i < opsPerThread; i++) {
+						if ((i & 1) == 0) {
+							insert.accept(random.nextInt());
+						} else {
+							deleteMin.get();
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		long startTime = System.nanoTime();
+		start.countDown();
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+		System.out.printf("  %-22s %8.2f Mops/s\n", name, (double) threads * opsPerThread * 1000 / elapsedTime);
 	}
 
-	private static void displayResults(String typeName, String sortName, long elapsedTime, int size, boolean isSorted) {
+	/**
+	 * Compares the in-memory BinaryHeap with an ExternalHeap whose in-memory
+	 * buffer is capped at 2^20 elements. Below the buffer size the two do the
+	 * same work; above it the external heap pays for disk I/O but its Java
+	 * heap use stays flat.
+	 *
+	 * @param sizes heap sizes to try
+	 */
+	private static void runExternalHeapBenchmark(int[] sizes) {
+		int bufferCapacity = 1 << 20;
+		Path directory;
+		try {
+			directory = Files.createTempDirectory("sortrunner");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (int size : sizes) {
+			int[] values = getWorkload(Workload.RANDOM, size);
+
+			BinaryHeap<Integer> heap = new BinaryHeap<Integer>(Integer.class);
+			long startTime = System.currentTimeMillis();
+			for (int i = 0; i < size; i++) {
+				heap.insert(values[i]);
+			}
+			for (int i = 0; i < size; i++) {
+				heap.deleteMin();
+			}
+			long elapsedTime = System.currentTimeMillis() - startTime;
+			System.out.printf("%.1e elements: BinaryHeap in %d milliseconds", (double) size, elapsedTime);
+			heap = null;
+
+			try (ExternalHeap<Integer> external = new ExternalHeap<Integer>(Integer.class, ElementCodec.INTEGER,
+					bufferCapacity, directory)) {
+				startTime = System.currentTimeMillis();
+				for (int i = 0; i < size; i++) {
+					external.insert(values[i]);
+				}
+				int runs = external.runCount();
+				for (int i = 0; i < size; i++) {
+					external.deleteMin();
+				}
+				elapsedTime = System.currentTimeMillis() - startTime;
+				System.out.printf(", ExternalHeap in %d milliseconds (%d runs on disk)\n", elapsedTime, runs);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		try {
+			Files.deleteIfExists(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Runs the same monotone workload through BinaryHeap and RadixHeap. Keys
+	 * come from the almost sorted generator, raised where needed to the last
+	 * removed key, and every second insert is followed by a deleteMin, as in
+	 * an event simulation. The heap is drained at the end.
+	 *
+	 * @param sizes numbers of inserts to try
+	 */
+	private static void runRadixHeapBenchmark(int[] sizes) {
+		for (int size : sizes) {
+			int[] keys = getWorkload(Workload.ALMOST_SORTED, size);
+
+			BinaryHeap<Integer> binaryHeap = new BinaryHeap<Integer>(Integer.class);
+			long startTime = System.currentTimeMillis();
+			int last = Integer.MIN_VALUE;
+			long checksum = 0;
+			for (int i = 0; i < size; i++) {
+				binaryHeap.insert(Math.max(keys[i], last));
+				if ((i & 1) == 1) {
+					last = binaryHeap.deleteMin();
+					checksum += last;
+				}
+			}
+			while (binaryHeap.size > 0) {
+				checksum += binaryHeap.deleteMin();
+			}
+			long elapsedTime = System.currentTimeMillis() - startTime;
+			System.out.printf("%.1e monotone inserts: BinaryHeap in %d milliseconds", (double) size, elapsedTime);
+
+			RadixHeap<Integer> radixHeap = new RadixHeap<Integer>();
+			startTime = System.currentTimeMillis();
+			last = Integer.MIN_VALUE;
+			long radixChecksum = 0;
+			for (int i = 0; i < size; i++) {
+				int key = Math.max(keys[i], last);
+				radixHeap.insert(key, key);
+				if ((i & 1) == 1) {
+					last = radixHeap.deleteMin();
+					radixChecksum += last;
+				}
+			}
+			while (!radixHeap.isEmpty()) {
+				radixChecksum += radixHeap.deleteMin();
+			}
+			elapsedTime = System.currentTimeMillis() - startTime;
+			System.out.printf(", RadixHeap in %d milliseconds%s\n", elapsedTime,
+					checksum == radixChecksum ? "" : " (RESULTS DIFFER)");
+		}
+	}
+
+	/**
+	 * Runs the fork-join sorts and Arrays.parallelSort in pools of 1, 2, 4 ...
+	 * up to the number of cores. Speedup is relative to the same sort on one
+	 * thread; efficiency is speedup divided by thread count, so it falls as
+	 * a sort stops scaling. Each time is the best of three runs.
+	 *
+	 * @param size number of elements to sort
+	 */
+	private static void runParallelScalingBenchmark(int size) {
+		int[] input = getWorkload(Workload.RANDOM, size);
+		Integer[] boxedInput = copyToIntegerArray(input);
+		String[] names = { "int parallel quicksort", "int parallel mergesort", "int Arrays.parallelSort",
+				"Integer parallel quicksort", "Integer parallel mergesort", "Integer Arrays.parallelSort" };
+		long[] singleThreadTimes = new long[names.length];
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.printf("Sorting %.1e random elements\n", (double) size);
+		for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			for (int k = 0; k < names.length; k++) {
+				long best = Long.MAX_VALUE;
+				boolean isSorted = true;
+				for (int run = 0; run < 3; run++) {
+					int[] ints = input.clone();
+					Integer[] integers = boxedInput.clone();
+					final int algorithm = k;
+					long startTime = System.nanoTime();
+					// Tasks forked from inside the pool, including those of
+					// Arrays.parallelSort, stay in that pool.
+					pool.submit(() -> {
+						switch (algorithm) {
+						case 0:
+							ParallelSort.quicksort(ints, pool, ParallelSort.DEFAULT_THRESHOLD);
+							break;
+						case 1:
+							ParallelSort.mergesort(ints, pool, ParallelSort.DEFAULT_THRESHOLD);
+							break;
+						case 2:
+							Arrays.parallelSort(ints);
+							break;
+						case 3:
+							ParallelSort.quicksort(integers, Comparator.<Integer>naturalOrder(), pool,
+									ParallelSort.DEFAULT_THRESHOLD);
+							break;
+						case 4:
+							ParallelSort.mergesort(integers, Comparator.<Integer>naturalOrder(), pool,
+									ParallelSort.DEFAULT_THRESHOLD);
+							break;
+						default:
+							Arrays.parallelSort(integers);
+						}
+					}).join();
+					best = Math.min(best, System.nanoTime() - startTime);
+					isSorted &= k < 3 ? verifySort(ints) : verifySort(integers);
+				}
+				if (threads == 1) {
+					singleThreadTimes[k] = best;
+				}
+				double speedup = (double) singleThreadTimes[k] / best;
+				System.out.printf("%-28s %3d threads %7d milliseconds, speedup %5.2f, efficiency %3.0f%%%s\n",
+						names[k], threads, best / 1000000, speedup, 100 * speedup / threads,
+						isSorted ? "" : " (ARRAY NOT SORTED)");
+			}
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Sorts random Integer[] arrays with Arrays.sort and with KeyPrefixSort,
+	 * which sorts the values packed with their indices in a long[] and then
+	 * moves each Integer once. The Integers are boxed in shuffled order, so
+	 * neighbours in the array are not neighbours on the heap, as in a
+	 * long-running program.
+	 *
+	 * @param sizes numbers of elements to sort
+	 */
+	private static void runKeyPrefixBenchmark(int[] sizes) {
+		AllocationProbe probe = new AllocationProbe();
+		for (int size : sizes) {
+			int[] values = getWorkload(Workload.RANDOM, size);
+			int[] order = Workload.shuffled(size, SEED + 1);
+			Integer[] input = new Integer[size];
+			for (int i : order) {
+				input[i] = values[i];
+			}
+			values = null;
+			order = null;
+			fastestSort = null;
+			fastestTime = Long.MAX_VALUE;
+
+			Integer[] integers = input.clone();
+			probe.start();
+			long startTime = System.currentTimeMillis();
+			Arrays.sort(integers);
+			long elapsedTime = System.currentTimeMillis() - startTime;
+			probe.stop();
+			displayResults("Integer", "the default sort", elapsedTime, size, verifySort(integers), null, probe);
+
+			integers = input.clone();
+			probe.start();
+			startTime = System.currentTimeMillis();
+			KeyPrefixSort.sortByIntKey(integers, Integer::intValue);
+			elapsedTime = System.currentTimeMillis() - startTime;
+			probe.stop();
+			displayResults("Integer", "the key-prefix sort", elapsedTime, size, verifySort(integers), null, probe);
+		}
+	}
+
+	/**
+	 * Sorts random arrays whose values lie in [0, maxValue), for maxValue
+	 * from 1 up to 2^30 in steps of 4 and then Integer.MAX_VALUE, and prints
+	 * one row per array with its number of distinct keys and each sort's
+	 * time, the best of three runs. Counting sort is only run while the range
+	 * fits its count array.
+	 *
+	 * @param size number of elements to sort
+	 */
+	private static void runMaxValueSweep(int size) {
+		String[] names = { "Arrays.sort", "Quicksort", "3-way", "counting", "tree", "Sorts" };
+		System.out.printf("Sorting %.1e random ints in [0, maxValue), times in milliseconds\n", (double) size);
+		System.out.printf("%10s %10s", "maxValue", "distinct");
+		for (String name : names) {
+			System.out.printf(" %11s", name);
+		}
+		System.out.println();
+		for (long maxValue = 1; maxValue <= Integer.MAX_VALUE; maxValue = maxValue < 1 << 30 ? maxValue * 4
+				: maxValue == Integer.MAX_VALUE ? Long.MAX_VALUE : Integer.MAX_VALUE) {
+			int[] input = Workload.random(size, (int) maxValue, SEED);
+			int[] sorted = input.clone();
+			Arrays.sort(sorted);
+			int distinct = size == 0 ? 0 : 1;
+			for (int i = 1; i < size; i++) {
+				if (sorted[i] != sorted[i - 1]) {
+					distinct++;
+				}
+			}
+			System.out.printf("%10d %10d", maxValue, distinct);
+			for (int k = 0; k < names.length; k++) {
+				if (k == 3 && maxValue > CountingSort.MAX_RANGE) {
+					System.out.printf(" %11s", "-");
+					continue;
+				}
+				long best = Long.MAX_VALUE;
+				boolean isSorted = true;
+				for (int run = 0; run < 3; run++) {
+					int[] ints = input.clone();
+					long startTime = System.nanoTime();
+					switch (k) {
+					case 0:
+						Arrays.sort(ints);
+						break;
+					case 1:
+						Quicksort.sort(ints);
+						break;
+					case 2:
+						ThreeWayQuicksort.sort(ints);
+						break;
+					case 3:
+						CountingSort.sort(ints);
+						break;
+					case 4:
+						IntTreeMultiset.sort(ints);
+						break;
+					default:
+						Sorts.sort(ints);
+					}
+					best = Math.min(best, System.nanoTime() - startTime);
+					isSorted &= Arrays.equals(ints, sorted);
+				}
+				System.out.printf(" %11s", isSorted ? String.valueOf(best / 1000000) : "NOT SORTED");
+			}
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Writes a file of random ints, sorts it with ExternalSort and checks the
+	 * result, printing the throughput of each phase. The default of 10^9 ints
+	 * makes a 4 GB file.
+	 *
+	 * @param count       number of ints in the file
+	 * @param memoryBytes heap budget for sorting
+	 * @param fanIn       most runs merged at once
+	 */
+	private static void runExternalSortBenchmark(long count, long memoryBytes, int fanIn) {
+		long bytes = count * Integer.BYTES;
+		double megabytes = bytes / (1024.0 * 1024.0);
+		try {
+			Path directory = Files.createTempDirectory("sortrunner");
+			Path input = directory.resolve("input.bin");
+			Path output = directory.resolve("output.bin");
+			try {
+				long startTime = System.nanoTime();
+				try (FileChannel channel = FileChannel.open(input, StandardOpenOption.CREATE_NEW,
+						StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					for (long position = 0; position < bytes; position += 1 << 26) {
+						MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position,
+								Math.min(1 << 26, bytes - position));
+						buffer.order(ExternalSort.ORDER);
+						while (buffer.hasRemaining()) {
+							buffer.putInt(rand.nextInt());
+						}
+					}
+				}
+				printPhase("Generated", megabytes, System.nanoTime() - startTime);
+
+				ExternalSort sorter = new ExternalSort(memoryBytes, fanIn, directory);
+				ExternalSort.Report report = sorter.sortInts(input, output);
+				printPhase(String.format("Wrote %d sorted runs", report.runs), megabytes, report.runPhaseNanos);
+				printPhase(String.format("Merged in %d passes", report.mergePasses), megabytes,
+						report.mergePhaseNanos);
+
+				startTime = System.nanoTime();
+				boolean isSorted = true;
+				int last = Integer.MIN_VALUE;
+				try (FileChannel channel = FileChannel.open(output, StandardOpenOption.READ)) {
+					for (long position = 0; position < bytes; position += 1 << 26) {
+						MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+								Math.min(1 << 26, bytes - position));
+						buffer.order(ExternalSort.ORDER);
+						IntBuffer ints = buffer.asIntBuffer();
+						while (ints.hasRemaining()) {
+							int n = ints.get();
+							if (n < last) {
+								isSorted = false;
+							}
+							last = n;
+						}
+					}
+				}
+				printPhase(isSorted ? "Verified" : "ARRAY NOT SORTED, verified", megabytes,
+						System.nanoTime() - startTime);
+			} finally {
+				Files.deleteIfExists(input);
+				Files.deleteIfExists(output);
+				Files.deleteIfExists(directory);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Prints how presorted the array is: its number of ascending runs and an
+	 * estimate, from 100,000 random pairs, of the fraction of pairs that are
+	 * out of order.
+	 */
+	private static void printPresortedness(int[] array) {
+		// Both estimates draw the same seeded sample, so they agree.
+		System.out.printf("%d runs, about %.1f%% of pairs inverted (%.1e inversions)\n", Presortedness.runs(array),
+				Presortedness.inversionFraction(array, 100000, SEED) * 100,
+				Presortedness.inversions(array, 100000, SEED));
+	}
+
+	/**
+	 * Times how long each workload takes to generate, generating each twice
+	 * to check that the same seed gives the same array.
+	 *
+	 * @param size number of elements per workload
+	 */
+	private static void runWorkloadBenchmark(int size) {
+		for (Workload workload : Workload.values()) {
+			long startTime = System.currentTimeMillis();
+			int[] first = workload.generate(size, SEED);
+			long elapsedTime = System.currentTimeMillis() - startTime;
+			boolean reproducible = Arrays.equals(first, workload.generate(size, SEED));
+			System.out.printf("Generated %.1e %s ints in %d milliseconds%s\n", (double) size, workload.key(),
+					elapsedTime, reproducible ? "" : " (NOT REPRODUCIBLE)");
+		}
+	}
+
+	private static void printPhase(String phase, double megabytes, long elapsedNanos) {
+		System.out.printf("%s %.0f MB in %d milliseconds (%.1f MB/s)\n", phase, megabytes, elapsedNanos / 1000000,
+				megabytes * 1e9 / elapsedNanos);
+	}
+
+	/**
+	 * Reads the sizes given after the mode name on the command line, falling
+	 * back to the defaults when none are given. Sizes may be written as 1e7.
+	 */
+	private static int[] parseSizes(String[] args, int[] defaults) {
+		if (args.length < 2) {
+			return defaults;
+		}
+		int[] sizes = new int[args.length - 1];
+		for (int i = 1; i < args.length; i++) {
+			sizes[i - 1] = (int) Double.parseDouble(args[i]);
+		}
+		return sizes;
+	}
+
+	/**
+	 * Returns a fresh counter when running in metrics mode, otherwise null so
+	 * the sorts take their uninstrumented path.
+	 */
+	private static CountingSortMetrics newMetrics() {
+		return collectMetrics ? new CountingSortMetrics() : null;
+	}
+
+	private static void displayResults(String typeName, String sortName, long elapsedTime, int size, boolean isSorted,
+			CountingSortMetrics metrics, AllocationProbe probe) {
 		if (isSorted) {
-			System.out.printf("Sorted %.1e %ss using %s in %d milliseconds\n", (double) size, typeName, sortName,
-					elapsedTime);
+			if (elapsedTime < fastestTime) {
+				fastestSort = sortName;
+				fastestTime = elapsedTime;
+			}
+			System.out.printf("Sorted %.1e %ss using %s in %d milliseconds (%s)\n", (double) size, typeName, sortName,
+					elapsedTime, probe);
+			if (metrics != null) {
+				System.out.println("    " + metrics);
+			}
 		} else {
 			System.out.println("ARRAY NOT SORTED");
 		}
 	}
 
+	/**
+	 * Fails the run, when run with -DfailOnAllocation=true, if a sort that
+	 * should work in place allocated more than a few small buffers. Otherwise
+	 * just prints a warning.
+	 */
+	private static void checkAllocationFree(String sortName, AllocationProbe probe) {
+		if (probe.getBytesAllocated() <= ALLOCATION_FREE_BUDGET) {
+			return;
+		}
+		String message = String.format("%s allocated %d bytes but should not allocate", sortName,
+				probe.getBytesAllocated());
+		if (FAIL_ON_ALLOCATION) {
+			throw new IllegalStateException(message);
+		}
+		System.out.println("WARNING: " + message);
+	}
+
 	/**
 	 * Checks in O(n) time if this array is sorted.
 	 *
@@ -174,59 +907,19 @@ public class SortRunner {
 	}
 
 	/**
-	 * Creates and returns an array of random ints of the given size.
-	 *
-	 * @return An array of random ints.
-	 */
-	private static int[] getRandomIntArray(int size, int maxValue) {
-		int[] a = new int[size];
-		for (int i = 0; i < size; i++) {
-			a[i] = rand.nextInt(maxValue);
-		}
-		return a;
-	}
-
-	/**
-	 * Creates a shuffled random array.
-	 *
-	 * @param size
-	 * @return An array of the ints from 0 to size-1, all shuffled
+	 * Returns the workload's input for this run's seed, from the dataset
+	 * cache when one is configured.
 	 */
-	private static int[] getUniqueElementArray(int size) {
-		ArrayList<Integer> a = new ArrayList<Integer>();
-		for (int i = 0; i < size; i++) {
-			a.add(i);
-		}
-		Collections.shuffle(a);
-		int[] toReturn = new int[size];
-		for (int j = 0; j < a.size() - 1; j++) {
-			toReturn[j] = a.get(j);
-		}
-		return toReturn;
-	}
-	
-	private static int[] getAlmostReverseSortedArray(int size) {
-		int[] toReturn = new int[size];
-		for (int i = 0; i < size - 1; i++) {
-			toReturn[i] = i;
-		}
-		Quicksort.sort(toReturn);
-		for (int j = 0; j < (int) (size*0.01); j++) {
-			toReturn[j] = rand.nextInt(size - 1);
-		}
-		return toReturn;
-	}
-	
-	private static int[] getAlmostSortedArray(int size) {
-		int[] toReturn = new int[size];
-		for (int i = 0; i < size - 1; i++) {
-			toReturn[i] = i;
+	private static int[] getWorkload(Workload workload, int size) {
+		if (DATASETS.isEmpty()) {
+			return workload.generate(size, SEED);
 		}
-		Quicksort.sort(toReturn);
-		for (int j = 0; j < (int) (size*0.01); j++) {
-			toReturn[size - j - 1] = rand.nextInt(size - 1);
+		DatasetCache cache = new DatasetCache(Paths.get(DATASETS));
+		try {
+			return cache.load(workload, size, SEED);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return toReturn;
 	}
 
 }
@@ -0,0 +1,305 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+/**
+ * One entry point that looks at the input before sorting it and hands it to
+ * whichever engine should do best.
+ *
+ * For an int[] a single pass finds the smallest and largest values. The
+ * number of ascending and descending runs is estimated from 32 evenly
+ * spaced windows of 256 elements, and how many values repeat from a sorted
+ * random sample of 1024. Then, in order:
+ * <ul>
+ * <li>inputs under 256 elements go to Quicksort, which insertion sorts
+ * them;</li>
+ * <li>inputs made of at most 16 runs, such as sorted, reversed or
+ * organ-pipe input, go to NaturalMergeSort;</li>
+ * <li>if the values span no more than a quarter of the input's length,
+ * CountingSort;</li>
+ * <li>if the runs average at least 32 elements, NaturalMergeSort;</li>
+ * <li>NaturalMergeSort is only picked if the spare heap can hold its merge
+ * buffer of up to n/2 elements; otherwise the input goes on down the
+ * list;</li>
+ * <li>from 2^20 elements up, with more than one core, the parallel
+ * quicksort;</li>
+ * <li>if the sample is mostly distinct and the spare heap can hold the
+ * radix sort's scratch array, the LSD radix sort;</li>
+ * <li>otherwise Quicksort, which groups repeated values in linear time
+ * and, like the parallel quicksort, sorts in place.</li>
+ * </ul>
+ *
+ * Object arrays can only be compared, so they go to NaturalMergeSort, or
+ * the parallel mergesort when large; both are stable. When the spare heap
+ * cannot hold a mergesort's buffer they fall back to HeapSort, which is
+ * not.
+ *
+ * The sort methods return the Decision they acted on, so callers can
+ * report it.
+ *
+ * @author Sam Stieby
+ */
+public final class Sorts {
+
+	public static final int SMALL_THRESHOLD = 256;
+	public static final int PARALLEL_THRESHOLD = 1 << 20;
+	private static final int SAMPLE_SIZE = 1024;
+	// Runs are counted in this many evenly spaced windows of consecutive
+	// elements.
+	private static final int RUN_WINDOWS = 32;
+	private static final int RUN_WINDOW = 256;
+	// Runs this long on average are worth merging rather than sorting from
+	// scratch.
+	private static final int PRESORTED_RUN_LENGTH = 32;
+	// With this few runs merging them is a handful of linear passes, which
+	// beats even counting sort.
+	private static final int FEW_RUNS = 16;
+	private static final long SAMPLE_SEED = 0x5eed;
+
+	/**
+	 * The engines Sorts can pick.
+	 */
+	public enum Strategy {
+		QUICKSORT("quicksort"), COUNTING("counting sort"), NATURAL_MERGE("natural mergesort"),
+		HEAPSORT("heapsort"), PARALLEL("parallel sort"), RADIX("LSD radix sort");
+
+		private final String description;
+
+		private Strategy(String description) {
+			this.description = description;
+		}
+
+		public String toString() {
+			return this.description;
+		}
+	}
+
+	/**
+	 * Which engine was picked, and the measurements it was picked from.
+	 */
+	public static final class Decision {
+		public final Strategy strategy;
+		public final int size;
+		// The smallest and largest values. Only measured for int[]; 0 for
+		// object arrays and small inputs.
+		public final int min;
+		public final int max;
+		// Estimated number of monotone runs, ascending or descending, as
+		// NaturalMergeSort would find them before extending short ones; 0
+		// if the input was too small to sample.
+		public final int runs;
+		// Fraction of the sample that repeated an earlier sample element.
+		public final double duplicateRatio;
+
+		Decision(Strategy strategy, int size, int min, int max, int runs, double duplicateRatio) {
+			this.strategy = strategy;
+			this.size = size;
+			this.min = min;
+			this.max = max;
+			this.runs = runs;
+			this.duplicateRatio = duplicateRatio;
+		}
+
+		/**
+		 * Returns the number of values from min to max inclusive.
+		 */
+		public long range() {
+			return (long) this.max - this.min + 1;
+		}
+
+		public String toString() {
+			if (this.runs == 0) {
+				return this.strategy + " (too small to sample)";
+			}
+			return String.format("%s (range %.1e, %d runs, %.0f%% duplicates)", this.strategy, (double) range(),
+					this.runs, this.duplicateRatio * 100);
+		}
+	}
+
+	private Sorts() {
+	}
+
+	/**
+	 * Samples the array and sorts it with the engine that suits it.
+	 *
+	 * @return the decision that was acted on
+	 */
+	public static Decision sort(int[] a) {
+		Decision decision = choose(a);
+		switch (decision.strategy) {
+		case COUNTING:
+			CountingSort.sort(a, 0, a.length, decision.min, decision.max);
+			break;
+		case NATURAL_MERGE:
+			NaturalMergeSort.sort(a);
+			break;
+		case PARALLEL:
+			ParallelSort.quicksort(a);
+			break;
+		case RADIX:
+			RadixSort.lsd(a);
+			break;
+		default:
+			Quicksort.sort(a);
+			break;
+		}
+		return decision;
+	}
+
+	/**
+	 * Samples the array and picks an engine for it without sorting.
+	 */
+	public static Decision choose(int[] a) {
+		int n = a.length;
+		if (n < SMALL_THRESHOLD) {
+			return new Decision(Strategy.QUICKSORT, n, 0, 0, 0, 0);
+		}
+		int min = a[0];
+		int max = a[0];
+		for (int i = 1; i < n; i++) {
+			min = Math.min(min, a[i]);
+			max = Math.max(max, a[i]);
+		}
+		int turns = 0;
+		int pairs = 0;
+		// Small arrays are scanned whole, as a single window.
+		int windows = n <= RUN_WINDOWS * RUN_WINDOW ? 1 : RUN_WINDOWS;
+		for (int w = 0; w < windows; w++) {
+			int from = windows == 1 ? 0 : (int) ((long) w * (n - RUN_WINDOW) / (RUN_WINDOWS - 1));
+			int to = windows == 1 ? n : from + RUN_WINDOW;
+			int direction = 0;
+			for (int i = from + 1; i < to; i++) {
+				int step = Integer.compare(a[i], a[i - 1]);
+				// Counted without a branch: the product is -1 only when the
+				// direction reverses.
+				turns += (step * direction) >>> 31;
+				direction = step != 0 ? step : direction;
+			}
+			pairs += to - from - 1;
+		}
+		int runs = estimateRuns(n, turns, pairs);
+		long range = (long) max - min + 1;
+		double duplicateRatio = duplicateRatio(a);
+
+		// NaturalMergeSort buffers the shorter of each pair of runs it merges.
+		boolean mergeFits = fits((long) (n / 2) * Integer.BYTES);
+		Strategy strategy;
+		if (runs <= FEW_RUNS && mergeFits) {
+			strategy = Strategy.NATURAL_MERGE;
+		} else if (range <= n / 4 && range <= CountingSort.MAX_RANGE && fits(range * Integer.BYTES)) {
+			strategy = Strategy.COUNTING;
+		} else if (runs <= n / PRESORTED_RUN_LENGTH && mergeFits) {
+			strategy = Strategy.NATURAL_MERGE;
+		} else if (n >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1) {
+			strategy = Strategy.PARALLEL;
+		} else if (duplicateRatio < 0.5 && fits((long) n * Integer.BYTES)) {
+			strategy = Strategy.RADIX;
+		} else {
+			strategy = Strategy.QUICKSORT;
+		}
+		return new Decision(strategy, n, min, max, runs, duplicateRatio);
+	}
+
+	public static <T extends Comparable<? super T>> Decision sort(T[] a) {
+		return sort(a, null);
+	}
+
+	/**
+	 * Samples the array and sorts it with the engine that suits it.
+	 *
+	 * @param comp the ordering, or null for the natural ordering
+	 * @return the decision that was acted on
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Decision sort(T[] a, Comparator<? super T> comp) {
+		if (comp == null) {
+			comp = (Comparator<? super T>) Comparator.naturalOrder();
+		}
+		Decision decision = choose(a, comp);
+		switch (decision.strategy) {
+		case HEAPSORT:
+			HeapSort.sort(a, comp);
+			break;
+		case PARALLEL:
+			ParallelSort.mergesort(a, comp);
+			break;
+		default:
+			NaturalMergeSort.sort(a, comp);
+			break;
+		}
+		return decision;
+	}
+
+	/**
+	 * Samples the array and picks an engine for it without sorting. This
+	 * costs at most 8192 comparisons.
+	 */
+	public static <T> Decision choose(T[] a, Comparator<? super T> comp) {
+		int n = a.length;
+		if (n < SMALL_THRESHOLD) {
+			return new Decision(Strategy.NATURAL_MERGE, n, 0, 0, 0, 0);
+		}
+		int turns = 0;
+		int pairs = 0;
+		int windows = n <= RUN_WINDOWS * RUN_WINDOW ? 1 : RUN_WINDOWS;
+		for (int w = 0; w < windows; w++) {
+			int from = windows == 1 ? 0 : (int) ((long) w * (n - RUN_WINDOW) / (RUN_WINDOWS - 1));
+			int to = windows == 1 ? n : from + RUN_WINDOW;
+			int direction = 0;
+			for (int i = from + 1; i < to; i++) {
+				int step = Integer.signum(comp.compare(a[i], a[i - 1]));
+				turns += (step * direction) >>> 31;
+				direction = step != 0 ? step : direction;
+			}
+			pairs += to - from - 1;
+		}
+		int runs = estimateRuns(n, turns, pairs);
+
+		// A reference is at most 8 bytes. NaturalMergeSort buffers up to n/2
+		// of them, and the parallel mergesort n.
+		Strategy strategy;
+		if (runs <= n / PRESORTED_RUN_LENGTH && fits((long) (n / 2) * 8)) {
+			strategy = Strategy.NATURAL_MERGE;
+		} else if (!fits((long) n * 8)) {
+			strategy = Strategy.HEAPSORT;
+		} else if (n >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1) {
+			strategy = Strategy.PARALLEL;
+		} else {
+			strategy = Strategy.NATURAL_MERGE;
+		}
+		return new Decision(strategy, n, 0, 0, runs, 0);
+	}
+
+	// Scales the direction changes seen in the windows up to the whole
+	// array.
+	private static int estimateRuns(int n, int turns, int pairs) {
+		return 1 + (int) Math.round((double) turns * (n - 1) / Math.max(pairs, 1));
+	}
+
+	// Sorts a seeded random sample and counts the elements equal to the one
+	// before them. The fixed seed keeps decisions repeatable.
+	private static double duplicateRatio(int[] a) {
+		SplittableRandom random = new SplittableRandom(SAMPLE_SEED);
+		int[] sample = new int[SAMPLE_SIZE];
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			sample[i] = a[random.nextInt(a.length)];
+		}
+		Arrays.sort(sample);
+		int duplicates = 0;
+		for (int i = 1; i < SAMPLE_SIZE; i++) {
+			if (sample[i] == sample[i - 1]) {
+				duplicates++;
+			}
+		}
+		return (double) duplicates / SAMPLE_SIZE;
+	}
+
+	// True if the heap has this many bytes to spare, counting garbage not
+	// yet collected as used. That errs towards the in-place sorts, the safe
+	// choice when memory is short.
+	private static boolean fits(long bytes) {
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return bytes <= free;
+	}
+}
@@ -0,0 +1,286 @@
+import java.util.Comparator;
+
+/**
+ * Quicksort with Bentley and McIlroy's three-way partition, for inputs with
+ * many repeated keys. Each partition gathers every element equal to the
+ * pivot into the middle, where it is never looked at again, so an array of
+ * k distinct keys takes O(n log k) time rather than O(n log n). It is not
+ * stable.
+ *
+ * Elements equal to the pivot are swapped to the two ends while scanning
+ * and moved to the middle afterwards, so inputs without duplicates pay
+ * only one extra comparison per element.
+ *
+ * The int[] sort scans once for the smallest and largest values, then
+ * tracks the bounds of each range, which narrow with every partition. Once
+ * a range's possible values number no more than its elements, and fit a
+ * 64K count array, it is finished with CountingSort without scanning
+ * again. An input with a small range goes to CountingSort straight
+ * away.
+ *
+ * Past a recursion depth of 2 log n it falls back to HeapSort.
+ *
+ * @author Sam Stieby
+ */
+public final class ThreeWayQuicksort {
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	private static final int NINTHER_THRESHOLD = 128;
+	public static final int COUNTING_SORT_MAX_RANGE = 1 << 16;
+
+	private ThreeWayQuicksort() {
+	}
+
+	public static void sort(int[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 */
+	public static void sort(int[] a, int from, int to) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		int min = a[from];
+		int max = a[from];
+		for (int i = from + 1; i < to; i++) {
+			min = Math.min(min, a[i]);
+			max = Math.max(max, a[i]);
+		}
+		sort(a, from, to - 1, min, max, 2 * log2(to - from));
+	}
+
+	// Sorts a[lo, hi], inclusive, whose values all lie in [min, max].
+	private static void sort(int[] a, int lo, int hi, long min, long max, int depthLimit) {
+		while (true) {
+			int n = hi - lo + 1;
+			if (n <= INSERTION_SORT_THRESHOLD) {
+				insertionSort(a, lo, hi);
+				return;
+			}
+			long range = max - min + 1;
+			if (range <= n && range <= COUNTING_SORT_MAX_RANGE) {
+				CountingSort.sort(a, lo, hi + 1, (int) min, (int) max);
+				return;
+			}
+			if (depthLimit-- == 0) {
+				HeapSort.sort(a, lo, hi + 1);
+				return;
+			}
+			swap(a, lo, pivotIndex(a, lo, hi));
+			int v = a[lo];
+
+			// Invariant: a[lo, p] == v, a[p + 1, i) < v, a(j, q - 1] > v and
+			// a[q, hi] == v.
+			int i = lo;
+			int j = hi + 1;
+			int p = lo;
+			int q = hi + 1;
+			while (true) {
+				while (a[++i] < v) {
+					if (i == hi) {
+						break;
+					}
+				}
+				while (v < a[--j]) {
+					if (j == lo) {
+						break;
+					}
+				}
+				if (i == j && a[i] == v) {
+					swap(a, ++p, i);
+				}
+				if (i >= j) {
+					break;
+				}
+				swap(a, i, j);
+				if (a[i] == v) {
+					swap(a, ++p, i);
+				}
+				if (a[j] == v) {
+					swap(a, --q, j);
+				}
+			}
+			// Swap the equal keys from both ends into the middle.
+			i = j + 1;
+			for (int k = lo; k <= p; k++) {
+				swap(a, k, j--);
+			}
+			for (int k = hi; k >= q; k--) {
+				swap(a, k, i++);
+			}
+
+			// Now a[lo, j] < v and a[i, hi] > v. Recurse into the smaller side
+			// and loop on the larger, so the stack stays O(log n).
+			if (j - lo < hi - i) {
+				sort(a, lo, j, min, v - 1L, depthLimit);
+				lo = i;
+				min = v + 1L;
+			} else {
+				sort(a, i, hi, v + 1L, max, depthLimit);
+				hi = j;
+				max = v - 1L;
+			}
+		}
+	}
+
+	private static int pivotIndex(int[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		int mid = lo + (n >>> 1);
+		if (n > NINTHER_THRESHOLD) {
+			int eighth = n >>> 3;
+			return median3(a, median3(a, lo, lo + eighth, lo + 2 * eighth), median3(a, mid - eighth, mid, mid + eighth),
+					median3(a, hi - 2 * eighth, hi - eighth, hi));
+		}
+		return median3(a, lo, mid, hi);
+	}
+
+	private static int median3(int[] a, int i, int j, int k) {
+		return a[i] < a[j] ? (a[j] < a[k] ? j : a[i] < a[k] ? k : i) : (a[k] < a[j] ? j : a[k] < a[i] ? k : i);
+	}
+
+	private static void insertionSort(int[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++) {
+			int x = a[i];
+			int j = i - 1;
+			while (j >= lo && a[j] > x) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = x;
+		}
+	}
+
+	private static void swap(int[] a, int i, int j) {
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	public static <T extends Comparable<? super T>> void sort(T[] a) {
+		sort(a, 0, a.length, null);
+	}
+
+	public static <T> void sort(T[] a, Comparator<? super T> comp) {
+		sort(a, 0, a.length, comp);
+	}
+
+	/**
+	 * Sorts a[from, to) into ascending order.
+	 *
+	 * @param comp the ordering, or null for the natural ordering
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(T[] a, int from, int to, Comparator<? super T> comp) {
+		HeapSort.rangeCheck(a.length, from, to);
+		if (to - from < 2) {
+			return;
+		}
+		if (comp == null) {
+			comp = (Comparator<? super T>) Comparator.naturalOrder();
+		}
+		sort(a, from, to - 1, comp, 2 * log2(to - from));
+	}
+
+	// The object version is the same partition without the counting sort
+	// cut-off, since objects have no range to count.
+	private static <T> void sort(T[] a, int lo, int hi, Comparator<? super T> comp, int depthLimit) {
+		while (true) {
+			if (hi - lo + 1 <= INSERTION_SORT_THRESHOLD) {
+				insertionSort(a, lo, hi, comp);
+				return;
+			}
+			if (depthLimit-- == 0) {
+				HeapSort.sort(a, lo, hi + 1, comp);
+				return;
+			}
+			swap(a, lo, pivotIndex(a, lo, hi, comp));
+			T v = a[lo];
+			int i = lo;
+			int j = hi + 1;
+			int p = lo;
+			int q = hi + 1;
+			while (true) {
+				while (comp.compare(a[++i], v) < 0) {
+					if (i == hi) {
+						break;
+					}
+				}
+				while (comp.compare(v, a[--j]) < 0) {
+					if (j == lo) {
+						break;
+					}
+				}
+				if (i == j && comp.compare(a[i], v) == 0) {
+					swap(a, ++p, i);
+				}
+				if (i >= j) {
+					break;
+				}
+				swap(a, i, j);
+				if (comp.compare(a[i], v) == 0) {
+					swap(a, ++p, i);
+				}
+				if (comp.compare(a[j], v) == 0) {
+					swap(a, --q, j);
+				}
+			}
+			i = j + 1;
+			for (int k = lo; k <= p; k++) {
+				swap(a, k, j--);
+			}
+			for (int k = hi; k >= q; k--) {
+				swap(a, k, i++);
+			}
+			if (j - lo < hi - i) {
+				sort(a, lo, j, comp, depthLimit);
+				lo = i;
+			} else {
+				sort(a, i, hi, comp, depthLimit);
+				hi = j;
+			}
+		}
+	}
+
+	private static <T> int pivotIndex(T[] a, int lo, int hi, Comparator<? super T> comp) {
+		int n = hi - lo + 1;
+		int mid = lo + (n >>> 1);
+		if (n > NINTHER_THRESHOLD) {
+			int eighth = n >>> 3;
+			return median3(a, median3(a, lo, lo + eighth, lo + 2 * eighth, comp),
+					median3(a, mid - eighth, mid, mid + eighth, comp), median3(a, hi - 2 * eighth, hi - eighth, hi, comp),
+					comp);
+		}
+		return median3(a, lo, mid, hi, comp);
+	}
+
+	private static <T> int median3(T[] a, int i, int j, int k, Comparator<? super T> comp) {
+		return comp.compare(a[i], a[j]) < 0
+				? (comp.compare(a[j], a[k]) < 0 ? j : comp.compare(a[i], a[k]) < 0 ? k : i)
+				: (comp.compare(a[k], a[j]) < 0 ? j : comp.compare(a[k], a[i]) < 0 ? k : i);
+	}
+
+	private static <T> void insertionSort(T[] a, int lo, int hi, Comparator<? super T> comp) {
+		for (int i = lo + 1; i <= hi; i++) {
+			T x = a[i];
+			int j = i - 1;
+			while (j >= lo && comp.compare(a[j], x) > 0) {
+				a[j + 1] = a[j];
+				j--;
+			}
+			a[j + 1] = x;
+		}
+	}
+
+	private static <T> void swap(T[] a, int i, int j) {
+		T t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	private static int log2(int n) {
+		return 31 - Integer.numberOfLeadingZeros(n);
+	}
+}
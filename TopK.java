@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the k largest elements seen in a stream, using O(k) memory and
+ * O(log k) time per element. The elements are held in a bounded min-heap
+ * whose top is the smallest survivor, so a new element either loses to the
+ * top in one comparison or replaces it with a single sift.
+ *
+ * For the k smallest, pass a reversed comparator or use {@link #smallest}.
+ * Instances are not thread-safe; give each thread its own and combine them
+ * with {@link #merge}, which is what {@link #collector} does for parallel
+ * streams.
+ *
+ * @author Sam Stieby
+ */
+public class TopK<T> {
+
+	private final int k;
+	private final Comparator<? super T> comp;
+	private final Object[] heap;
+	private int size;
+
+	/**
+	 * @param k    how many elements to keep
+	 * @param comp the ordering; the k largest under it are kept
+	 */
+	public TopK(int k, Comparator<? super T> comp) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative: " + k);
+		}
+		this.k = k;
+		this.comp = comp;
+		this.heap = new Object[k];
+		this.size = 0;
+	}
+
+	public static <T extends Comparable<? super T>> TopK<T> largest(int k) {
+		return new TopK<T>(k, Comparator.<T>naturalOrder());
+	}
+
+	public static <T extends Comparable<? super T>> TopK<T> smallest(int k) {
+		return new TopK<T>(k, Comparator.<T>reverseOrder());
+	}
+
+	/**
+	 * Returns a Collector that gathers the k largest stream elements under comp
+	 * into a list, best first. Parallel streams build partial results per
+	 * thread and merge them.
+	 */
+	public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> comp) {
+		return Collector.of(() -> new TopK<T>(k, comp), TopK::offer, TopK::merge, TopK::toList);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int capacity() {
+		return this.k;
+	}
+
+	/**
+	 * Considers one element, keeping it if it is among the k largest so far.
+	 *
+	 * @return true if the element was kept
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean offer(T element) {
+		if (this.size < this.k) {
+			percUp(this.size++, element);
+			return true;
+		}
+		if (this.k == 0 || this.comp.compare(element, (T) this.heap[0]) <= 0) {
+			return false;
+		}
+		percDown(element);
+		return true;
+	}
+
+	/**
+	 * Folds another partial result into this one and returns this.
+	 */
+	@SuppressWarnings("unchecked")
+	public TopK<T> merge(TopK<T> other) {
+		for (int i = 0; i < other.size; i++) {
+			offer((T) other.heap[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the smallest kept element, the one the next offer must beat once
+	 * the collector is full, or null if nothing has been kept.
+	 */
+	@SuppressWarnings("unchecked")
+	public T threshold() {
+		return this.size == 0 ? null : (T) this.heap[0];
+	}
+
+	/**
+	 * Returns the kept elements, largest first.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> toList() {
+		T[] elements = (T[]) Arrays.copyOf(this.heap, this.size);
+		HeapSort.sort(elements, 0, elements.length, Collections.reverseOrder(this.comp));
+		return new ArrayList<T>(Arrays.asList(elements));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void percUp(int i, T e) {
+		while (i > 0) {
+			int p = (i - 1) / 2;
+			if (this.comp.compare(e, (T) this.heap[p]) >= 0) {
+				break;
+			}
+			this.heap[i] = this.heap[p];
+			i = p;
+		}
+		this.heap[i] = e;
+	}
+
+	// Replaces the top with e and sifts it down.
+	@SuppressWarnings("unchecked")
+	private void percDown(T e) {
+		int i = 0;
+		int child;
+		while ((child = 2 * i + 1) < this.size) {
+			if (child + 1 < this.size && this.comp.compare((T) this.heap[child + 1], (T) this.heap[child]) < 0) {
+				child++;
+			}
+			if (this.comp.compare((T) this.heap[child], e) >= 0) {
+				break;
+			}
+			this.heap[i] = this.heap[child];
+			i = child;
+		}
+		this.heap[i] = e;
+	}
+}
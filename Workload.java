@@ -0,0 +1,451 @@
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded input distributions for the sort benchmarks.
+ *
+ * Every generator is a pure function of its arguments and seed, so the same
+ * call always returns the same array, bit for bit, on any machine and with
+ * any number of threads. The random generators fill the array in parallel
+ * in fixed 64K-element chunks; each chunk draws from its own
+ * SplittableRandom, seeded from the seed and the chunk's number, so the
+ * chunk a thread happens to pick up never changes what goes in it.
+ *
+ * The constants use fixed parameters so they can be named on the command
+ * line; the static methods take the parameters explicitly.
+ *
+ * Each constant carries a generator version, which DatasetCache stores
+ * with its files. Bump it whenever a change here alters what the constant
+ * generates, including changes to the static methods it calls, so that
+ * cached copies of the old output are not used.
+ *
+ * @author Sam Stieby
+ */
+public enum Workload {
+	/** Uniform values in [0, Integer.MAX_VALUE), so almost no duplicates. */
+	RANDOM("Random", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return random(size, Integer.MAX_VALUE, seed);
+		}
+	},
+	/** A random permutation of 0 to size-1. */
+	SHUFFLED("Shuffled", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return shuffled(size, seed);
+		}
+	},
+	/** 0 to size-1 in order, with 1% of the elements swapped out of place. */
+	ALMOST_SORTED("Almost Sorted", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			int[] a = sorted(size);
+			perturb(a, 0.01, seed);
+			return a;
+		}
+	},
+	/** size-1 down to 0, with 1% of the elements swapped out of place. */
+	ALMOST_REVERSED("Almost Reverse Sorted", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			int[] a = reversed(size);
+			perturb(a, 0.01, seed);
+			return a;
+		}
+	},
+	/** Zipf-distributed ranks over a million values, exponent 1. */
+	ZIPF("Zipf", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return zipf(size, 1 << 20, 1.0, seed);
+		}
+	},
+	/** Uniform values in [0, 16). */
+	FEW_UNIQUE("Few Unique", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return fewUnique(size, 16, seed);
+		}
+	},
+	/** Eight ascending ramps, one after another. */
+	SAWTOOTH("Sawtooth", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return sawtooth(size, 8);
+		}
+	},
+	/** Ascending to the middle, then descending. */
+	ORGAN_PIPE("Organ Pipe", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return organPipe(size);
+		}
+	},
+	/** Sorted runs about sqrt(size) long, each starting at a random value. */
+	SORTED_RUNS("Sorted Runs", 1) {
+		@Override
+		public int[] generate(int size, long seed) {
+			return sortedRuns(size, Math.max(1, (int) Math.sqrt(size)), seed);
+		}
+	};
+
+	private static final int CHUNK = 1 << 16;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final int SHUFFLE_BUCKETS = 1024;
+
+	private final String title;
+	private final int version;
+
+	private Workload(String title, int version) {
+		this.title = title;
+		this.version = version;
+	}
+
+	/**
+	 * Generates size elements of this distribution.
+	 */
+	public abstract int[] generate(int size, long seed);
+
+	/**
+	 * Returns the heading SortRunner prints above this workload's results.
+	 */
+	public String title() {
+		return this.title;
+	}
+
+	/**
+	 * Returns the version of this constant's generator. Arrays generated
+	 * with the same version, size and seed are identical.
+	 */
+	public int version() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the camel-case name used on the command line and in the JMH
+	 * parameters, such as almostSorted for ALMOST_SORTED.
+	 */
+	public String key() {
+		StringBuilder key = new StringBuilder();
+		for (String word : name().toLowerCase(Locale.ROOT).split("_")) {
+			key.append(key.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Looks a workload up by its key.
+	 *
+	 * @throws IllegalArgumentException if no workload has that key
+	 */
+	public static Workload forKey(String key) {
+		for (Workload workload : values()) {
+			if (workload.key().equals(key)) {
+				return workload;
+			}
+		}
+		throw new IllegalArgumentException("Unknown distribution: " + key);
+	}
+
+	/**
+	 * Returns uniform values in [0, maxValue).
+	 */
+	public static int[] random(int size, int maxValue, long seed) {
+		if (maxValue <= 0) {
+			throw new IllegalArgumentException("maxValue must be positive: " + maxValue);
+		}
+		return fill(size, seed, (a, from, to, random) -> {
+			for (int i = from; i < to; i++) {
+				a[i] = random.nextInt(maxValue);
+			}
+		});
+	}
+
+	/**
+	 * Returns uniform values in [0, distinct).
+	 */
+	public static int[] fewUnique(int size, int distinct, long seed) {
+		return random(size, distinct, seed);
+	}
+
+	/**
+	 * Returns a random permutation of 0 to size-1.
+	 *
+	 * A plain Fisher-Yates shuffle of 10^8 ints misses the cache on almost
+	 * every swap. Instead each value is dealt into one of 1024 random buckets
+	 * and each bucket is then shuffled on its own, which is just as uniform
+	 * (Rao and Sandelius) but keeps every swap inside a bucket small enough
+	 * to stay in cache, and lets the chunks and buckets run in parallel.
+	 */
+	public static int[] shuffled(int size, long seed) {
+		int chunks = chunks(size);
+		int[][] offsets = new int[chunks][SHUFFLE_BUCKETS];
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			SplittableRandom random = chunkRandom(seed, c);
+			for (int i = c * CHUNK, to = end(c, size); i < to; i++) {
+				offsets[c][random.nextInt(SHUFFLE_BUCKETS)]++;
+			}
+		});
+		// Lay the buckets out one after another, and within each bucket the
+		// chunks in order, turning the counts into starting offsets.
+		int[] bucketStarts = new int[SHUFFLE_BUCKETS + 1];
+		int next = 0;
+		for (int b = 0; b < SHUFFLE_BUCKETS; b++) {
+			bucketStarts[b] = next;
+			for (int c = 0; c < chunks; c++) {
+				int count = offsets[c][b];
+				offsets[c][b] = next;
+				next += count;
+			}
+		}
+		bucketStarts[SHUFFLE_BUCKETS] = size;
+
+		// Draw the same buckets again to deal the values out.
+		int[] a = new int[size];
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			SplittableRandom random = chunkRandom(seed, c);
+			int[] offset = offsets[c];
+			for (int i = c * CHUNK, to = end(c, size); i < to; i++) {
+				a[offset[random.nextInt(SHUFFLE_BUCKETS)]++] = i;
+			}
+		});
+
+		SplittableRandom root = new SplittableRandom(~seed);
+		SplittableRandom[] randoms = new SplittableRandom[SHUFFLE_BUCKETS];
+		for (int b = 0; b < SHUFFLE_BUCKETS; b++) {
+			randoms[b] = root.split();
+		}
+		IntStream.range(0, SHUFFLE_BUCKETS).parallel().forEach(b -> {
+			SplittableRandom random = randoms[b];
+			int from = bucketStarts[b];
+			for (int i = bucketStarts[b + 1] - 1; i > from; i--) {
+				int j = from + random.nextInt(i - from + 1);
+				int t = a[i];
+				a[i] = a[j];
+				a[j] = t;
+			}
+		});
+		return a;
+	}
+
+	/**
+	 * Returns values in [0, distinct) where value k turns up in proportion
+	 * to 1/(k+1)^exponent, so 0 is the most common. Samples are drawn by
+	 * rejection-inversion, which needs no table, so distinct may be as
+	 * large as Integer.MAX_VALUE.
+	 *
+	 * @param exponent how skewed the distribution is; 0 is uniform
+	 */
+	public static int[] zipf(int size, int distinct, double exponent, long seed) {
+		if (distinct <= 0 || exponent < 0) {
+			throw new IllegalArgumentException("Bad Zipf parameters: " + distinct + ", " + exponent);
+		}
+		ZipfSampler sampler = new ZipfSampler(distinct, exponent);
+		return fill(size, seed, (a, from, to, random) -> {
+			for (int i = from; i < to; i++) {
+				a[i] = sampler.sample(random) - 1;
+			}
+		});
+	}
+
+	/**
+	 * Returns teeth ascending ramps of equal length, each running up from 0.
+	 */
+	public static int[] sawtooth(int size, int teeth) {
+		int period = Math.max(1, (int) (((long) size + teeth - 1) / Math.max(teeth, 1)));
+		int[] a = new int[size];
+		IntStream.range(0, chunks(size)).parallel().forEach(c -> {
+			for (int i = c * CHUNK, to = end(c, size); i < to; i++) {
+				a[i] = i % period;
+			}
+		});
+		return a;
+	}
+
+	/**
+	 * Returns 0, 1, 2, ... up to the middle and back down again.
+	 */
+	public static int[] organPipe(int size) {
+		int[] a = new int[size];
+		IntStream.range(0, chunks(size)).parallel().forEach(c -> {
+			for (int i = c * CHUNK, to = end(c, size); i < to; i++) {
+				a[i] = Math.min(i, size - 1 - i);
+			}
+		});
+		return a;
+	}
+
+	/**
+	 * Returns consecutive ascending runs of runLength elements. Each run
+	 * starts at a random value and climbs by about four per element, so
+	 * neighbouring runs overlap and merging them takes real work.
+	 */
+	public static int[] sortedRuns(int size, int runLength, long seed) {
+		if (runLength <= 0 || runLength > Integer.MAX_VALUE / 4) {
+			throw new IllegalArgumentException("Bad run length: " + runLength);
+		}
+		int range = Integer.MAX_VALUE - 4 * runLength;
+		return fill(size, seed, (a, from, to, random) -> {
+			for (int i = from; i < to; i++) {
+				// The run's start is hashed from its number rather than drawn,
+				// so a run that crosses a chunk boundary agrees on it.
+				int run = i / runLength;
+				int base = (int) Long.remainderUnsigned(mix64(seed + (run + 1) * GOLDEN_GAMMA), range);
+				a[i] = base + 4 * (i - run * runLength) + random.nextInt(4);
+			}
+		});
+	}
+
+	/**
+	 * Returns 0 to size-1 in order.
+	 */
+	public static int[] sorted(int size) {
+		int[] a = new int[size];
+		IntStream.range(0, chunks(size)).parallel().forEach(c -> {
+			for (int i = c * CHUNK, to = end(c, size); i < to; i++) {
+				a[i] = i;
+			}
+		});
+		return a;
+	}
+
+	/**
+	 * Returns size-1 down to 0.
+	 */
+	public static int[] reversed(int size) {
+		int[] a = new int[size];
+		IntStream.range(0, chunks(size)).parallel().forEach(c -> {
+			for (int i = c * CHUNK, to = end(c, size); i < to; i++) {
+				a[i] = size - 1 - i;
+			}
+		});
+		return a;
+	}
+
+	/**
+	 * Swaps random pairs of elements until about the given fraction of the
+	 * array has been moved. The values themselves are unchanged, so a
+	 * permutation stays a permutation.
+	 */
+	public static void perturb(int[] a, double fraction, long seed) {
+		if (fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException("fraction must be in [0, 1]: " + fraction);
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		long swaps = (long) (a.length * fraction / 2);
+		for (long s = 0; s < swaps; s++) {
+			int i = random.nextInt(a.length);
+			int j = random.nextInt(a.length);
+			int t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+
+	private interface ChunkFiller {
+		void fill(int[] a, int from, int to, SplittableRandom random);
+	}
+
+	private static int[] fill(int size, long seed, ChunkFiller filler) {
+		int[] a = new int[size];
+		IntStream.range(0, chunks(size)).parallel()
+				.forEach(c -> filler.fill(a, c * CHUNK, end(c, size), chunkRandom(seed, c)));
+		return a;
+	}
+
+	/**
+	 * Returns the generator for one chunk. Its seed is hashed from the
+	 * chunk's number, so any chunk's stream can be started, or replayed,
+	 * without running through the ones before it.
+	 */
+	private static SplittableRandom chunkRandom(long seed, int chunk) {
+		return new SplittableRandom(mix64(seed + (chunk + 1) * GOLDEN_GAMMA));
+	}
+
+	private static int chunks(int size) {
+		return (int) (((long) size + CHUNK - 1) / CHUNK);
+	}
+
+	private static int end(int chunk, int size) {
+		return (int) Math.min(size, (long) (chunk + 1) * CHUNK);
+	}
+
+	// The SplitMix64 finalizer, the same mixing SplittableRandom uses.
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Hormann and Derflinger's rejection-inversion sampler for the Zipf
+	 * distribution over 1 to n. It inverts the integral of a continuous
+	 * hat function and accepts almost every draw.
+	 */
+	private static final class ZipfSampler {
+		private final int n;
+		private final double exponent;
+		private final double hIntegralX1;
+		private final double hIntegralN;
+		private final double s;
+
+		ZipfSampler(int n, double exponent) {
+			this.n = n;
+			this.exponent = exponent;
+			this.hIntegralX1 = hIntegral(1.5) - 1;
+			this.hIntegralN = hIntegral(n + 0.5);
+			this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+		}
+
+		int sample(SplittableRandom random) {
+			while (true) {
+				double u = this.hIntegralN + random.nextDouble() * (this.hIntegralX1 - this.hIntegralN);
+				double x = hIntegralInverse(u);
+				int k = (int) (x + 0.5);
+				if (k < 1) {
+					k = 1;
+				} else if (k > this.n) {
+					k = this.n;
+				}
+				if (k - x <= this.s || u >= hIntegral(k + 0.5) - h(k)) {
+					return k;
+				}
+			}
+		}
+
+		private double h(double x) {
+			return Math.exp(-this.exponent * Math.log(x));
+		}
+
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1 - this.exponent) * logX) * logX;
+		}
+
+		private double hIntegralInverse(double x) {
+			double t = x * (1 - this.exponent);
+			if (t < -1) {
+				t = -1;
+			}
+			return Math.exp(helper1(t) * x);
+		}
+
+		// log1p(x)/x, accurate near 0.
+		private static double helper1(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.log1p(x) / x;
+			}
+			return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+		}
+
+		// expm1(x)/x, accurate near 0.
+		private static double helper2(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.expm1(x) / x;
+			}
+			return 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+		}
+	}
+}
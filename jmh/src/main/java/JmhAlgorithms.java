@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+import benchmarks.SortAlgorithm;
+
+/**
+ * Gives the JMH benchmarks, which must live in a named package, access to
+ * the sorts and workloads in the default package.
+ *
+ * @author Sam Stieby
+ */
+public class JmhAlgorithms implements SortAlgorithm.Factory {
+
+	@Override
+	public SortAlgorithm get(String name) {
+		switch (name) {
+		case "intArraysSort":
+			return new SortAlgorithm() {
+				public boolean isBoxed() {
+					return false;
+				}
+
+				public Object sort(int[] ints, Integer[] boxed) {
+					Arrays.sort(ints);
+					return ints;
+				}
+			};
+		case "integerArraysSort":
+			return new SortAlgorithm() {
+				public boolean isBoxed() {
+					return true;
+				}
+
+				public Object sort(int[] ints, Integer[] boxed) {
+					Arrays.sort(boxed);
+					return boxed;
+				}
+			};
+		case "treeSort":
+			return new SortAlgorithm() {
+				public boolean isBoxed() {
+					return false;
+				}
+
+				public Object sort(int[] ints, Integer[] boxed) {
+					IntTreeMultiset.sort(ints);
+					return ints;
+				}
+			};
+		case "quicksort":
+			return new SortAlgorithm() {
+				public boolean isBoxed() {
+					return false;
+				}
+
+				public Object sort(int[] ints, Integer[] boxed) {
+					Quicksort.sort(ints);
+					return ints;
+				}
+			};
+		case "naturalMergeSort":
+			return new SortAlgorithm() {
+				public boolean isBoxed() {
+					return false;
+				}
+
+				public Object sort(int[] ints, Integer[] boxed) {
+					NaturalMergeSort.sort(ints);
+					return ints;
+				}
+			};
+		case "binaryHeap":
+			return new SortAlgorithm() {
+				public boolean isBoxed() {
+					return true;
+				}
+
+				public Object sort(int[] ints, Integer[] boxed) {
+					BinaryHeap.sort(boxed, Integer.class);
+					return boxed;
+				}
+			};
+		default:
+			throw new IllegalArgumentException("Unknown algorithm: " + name);
+		}
+	}
+
+	@Override
+	public int[] generate(String distribution, int size, long seed) {
+		return Workload.forKey(distribution).generate(size, seed);
+	}
+}
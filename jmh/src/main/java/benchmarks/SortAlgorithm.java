@@ -0,0 +1,46 @@
+package benchmarks;
+
+/**
+ * One sort under test. The sorts live in the default package, which named
+ * packages cannot import, so each is wrapped in one of these by the
+ * default-package JmhAlgorithms class and looked up by name.
+ *
+ * @author Sam Stieby
+ */
+public interface SortAlgorithm {
+
+	/**
+	 * Returns true if the sort works on Integer[] rather than int[].
+	 */
+	boolean isBoxed();
+
+	/**
+	 * Sorts whichever of the two arrays the algorithm works on and returns
+	 * it.
+	 */
+	Object sort(int[] ints, Integer[] boxed);
+
+	/**
+	 * Looks up algorithms and input distributions by name.
+	 */
+	interface Factory {
+		SortAlgorithm get(String name);
+
+		/**
+		 * Generates one of SortRunner's workloads, such as almostSorted.
+		 */
+		int[] generate(String distribution, int size, long seed);
+	}
+
+	static SortAlgorithm forName(String name) {
+		return factory().get(name);
+	}
+
+	static Factory factory() {
+		try {
+			return (Factory) Class.forName("JmhAlgorithms").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("JmhAlgorithms is missing from the classpath", e);
+		}
+	}
+}
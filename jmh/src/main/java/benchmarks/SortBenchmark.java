@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times one sort of one pre-generated input per invocation, over every
+ * combination of size, distribution and algorithm.
+ *
+ * The input is generated once per trial from a fixed seed and copied back
+ * into the working array before every invocation, so each sort always sees
+ * unsorted data and the copy is not timed. Each combination runs in its own
+ * forked JVMs, so JIT profiles and garbage from one sort cannot affect the
+ * next. Returning the sorted array stops the JIT from removing the sort as
+ * dead code.
+ *
+ * Per-invocation setup costs a few microseconds of timer overhead, which
+ * only matters at the smallest size.
+ *
+ * @author Sam Stieby
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class SortBenchmark {
+
+	private static final long SEED = 42;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000", "100000000" })
+	public int size;
+
+	@Param({ "random", "shuffled", "almostSorted", "almostReversed", "zipf", "fewUnique", "sawtooth", "organPipe",
+			"sortedRuns" })
+	public String distribution;
+
+	@Param({ "intArraysSort", "integerArraysSort", "treeSort", "quicksort", "naturalMergeSort",
+			"binaryHeap" })
+	public String algorithm;
+
+	private SortAlgorithm sorter;
+	private int[] input;
+	private Integer[] boxedInput;
+	private int[] ints;
+	private Integer[] boxed;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		this.sorter = SortAlgorithm.forName(this.algorithm);
+		this.input = SortAlgorithm.factory().generate(this.distribution, this.size, SEED);
+		if (this.sorter.isBoxed()) {
+			this.boxedInput = new Integer[this.size];
+			for (int i = 0; i < this.size; i++) {
+				this.boxedInput[i] = this.input[i];
+			}
+			this.boxed = new Integer[this.size];
+		} else {
+			this.ints = new int[this.size];
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void reset() {
+		if (this.sorter.isBoxed()) {
+			System.arraycopy(this.boxedInput, 0, this.boxed, 0, this.size);
+		} else {
+			System.arraycopy(this.input, 0, this.ints, 0, this.size);
+		}
+	}
+
+	@Benchmark
+	public Object sort() {
+		return this.sorter.sort(this.ints, this.boxed);
+	}
+}